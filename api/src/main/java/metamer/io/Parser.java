@@ -26,6 +26,7 @@ package metamer.io;
 
 import io.vavr.collection.Seq;
 import io.vavr.control.Either;
+import metamer.io.exception.InvalidRecord;
 
 import java.util.List;
 import java.util.stream.Stream;
@@ -67,4 +68,26 @@ public interface Parser<T> {
      * @return Exception if there were problems or sequence of correct Records.
      */
     Either<Exception, Seq<T>> read(Stream<String> lines);
+
+    /**
+     * Converting information into Records lazily, one record at a time.
+     *
+     * @param lines Stream of strings read from input source.
+     * @return Stream with exception or correct Record for every record of input source.
+     */
+    Stream<Either<Exception, T>> records(Stream<String> lines);
+
+    /**
+     * Converting information into Records lazily and dealing with invalid ones according to policy.
+     *
+     * @param lines  Stream of strings read from input source.
+     * @param policy Strategy for invalid records.
+     * @return Stream of correct Records.
+     */
+    default Stream<T> read(final Stream<String> lines, final ErrorPolicy policy) {
+        final Stream<Either<Exception, T>> records = records(lines);
+        return policy == ErrorPolicy.SKIP
+                ? records.filter(Either::isRight).map(Either::get)
+                : records.map(record -> record.getOrElseThrow(InvalidRecord::new));
+    }
 }
@@ -27,13 +27,21 @@ package metamer.assembler;
 import lombok.Value;
 import lombok.experimental.Accessors;
 import metamer.fasta.Record;
+import metamer.graph.Contig;
 import metamer.graph.Graph;
 import metamer.graph.GraphCycle;
+import metamer.utils.Streams;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
+import static java.util.Comparator.comparingInt;
 import static metamer.graph.Graph.graph;
 
 /**
@@ -42,21 +50,93 @@ import static metamer.graph.Graph.graph;
 @Value
 @Accessors(fluent = true)
 public class Assembler {
-    private final Stream<String> reads;
+    private final Stream<? extends CharSequence> reads;
     private final Consumer<Stream<Record>> writer;
     private final int k;
+    private final int threads;
+    private final int top;
+    private final int minCount;
+    private final boolean canonical;
+    private final long maxMemory;
+    private final boolean simplify;
+    private final Path checkpointDir;
+    private final boolean resume;
+    private final Source input;
 
     /**
      * Function for workflow control.
+     * <p>
+     * Contigs are passed to the writer as soon as they are found, unless only {@code top} longest
+     * of them are requested. K-mers seen less than {@code minCount} times aren't assembled.
+     * In {@code canonical} mode reads from both strands are assembled together and every contig is written once.
+     * If {@code maxMemory} is set, k-mers are counted on disk partition by partition.
+     * If {@code simplify} is set, tips and bubbles are removed from graph before traversal.
+     * <p>
+     * If {@code checkpointDir} is set, parsed reads, graph and compacted graph are saved there as soon as they are
+     * built. In {@code resume} mode the latest of them which is saved is restored instead of being built again.
+     * Checkpoints are recorded with the {@code input} of reads and options of assembly, they are built anew
+     * if any of them changes.
+     * <p>
+     * Header of every contig holds its mean k-mer coverage, e.g. {@code >seq1 coverage=12.5}.
      */
     public void assemble() {
-        final Graph graph = graph(k, reads);
-        final GraphCycle graphCycle = new GraphCycle(graph.optimizeGraph(), k);
+        final Graph graph;
+        try (final Stream<? extends CharSequence> source = reads) {
+            graph = checkpointDir == null ? compact(build(source)) : restore(source);
+        }
+        final GraphCycle graphCycle = new GraphCycle(graph, k);
         final AtomicInteger counter = new AtomicInteger();
-        final Stream<Record> contigs = graphCycle.findCycle().map(e -> {
+        final Stream<Contig> found = graphCycle.coveredContigs();
+        final Stream<Contig> selected = top > 0
+                ? Streams.top(found, top, comparingInt((Contig contig) -> contig.sequence().length()))
+                : found;
+        final Stream<Record> contigs = selected.map(e -> {
             counter.getAndIncrement();
-            return new Record("seq" + counter, "", e);
+            return new Record("seq" + counter, coverage(e), e.sequence());
         });
         writer.accept(contigs);
     }
+
+    private Graph build(final Stream<? extends CharSequence> source) {
+        return graph(k, source, threads, minCount, canonical, maxMemory);
+    }
+
+    private Graph compact(final Graph graph) {
+        return simplify ? graph.simplify() : graph.optimizeGraph();
+    }
+
+    private Graph restore(final Stream<? extends CharSequence> source) {
+        final Checkpoints checkpoints = new Checkpoints(checkpointDir, k, canonical, manifest());
+        if (!resume || !checkpoints.matches()) {
+            checkpoints.clear();
+            checkpoints.record();
+        }
+        final String stage = simplify ? Checkpoints.SIMPLIFIED : Checkpoints.UNITIGS;
+        final Optional<Graph> compacted = resume ? checkpoints.graph(stage) : Optional.empty();
+        return compacted.orElseGet(() -> checkpoints.save(stage, compact(restoreGraph(checkpoints, source))));
+    }
+
+    private Graph restoreGraph(final Checkpoints checkpoints, final Stream<? extends CharSequence> source) {
+        final Optional<Graph> graph = resume ? checkpoints.graph(Checkpoints.GRAPH) : Optional.empty();
+        return graph.orElseGet(() -> {
+            try (final Stream<String> saved = resume && checkpoints.has(Checkpoints.READS)
+                    ? checkpoints.reads(threads > 1)
+                    : checkpoints.reads(source, threads > 1)) {
+                return checkpoints.save(Checkpoints.GRAPH, build(saved));
+            }
+        });
+    }
+
+    private List<String> manifest() {
+        final List<String> lines = new ArrayList<>(input.manifest());
+        lines.add("k=" + k);
+        lines.add("canonical=" + canonical);
+        lines.add("min-count=" + minCount);
+        lines.add("max-memory=" + maxMemory);
+        return lines;
+    }
+
+    private static String coverage(final Contig contig) {
+        return String.format(Locale.ROOT, "coverage=%.1f", contig.coverage());
+    }
 }
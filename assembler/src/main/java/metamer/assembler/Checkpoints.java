@@ -0,0 +1,223 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.assembler;
+
+import metamer.graph.Graph;
+import metamer.graph.exception.InvalidSnapshot;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Outputs of completed stages of assembly kept in a directory.
+ * <p>
+ * Reads are kept as text, one read per line, graphs are kept as binary snapshots. Every output is written
+ * to a temporary file first and moved to its place when it is complete, so a run which is killed leaves
+ * checkpoints of completed stages only. Snapshot of graph with another length of kmer or strand mode,
+ * or a damaged one, isn't restored.
+ * <p>
+ * Input and options checkpoints are built with are recorded in a manifest. Checkpoints are only valid
+ * for the same manifest, so they are cleared when anything of it changes.
+ */
+final class Checkpoints {
+    static final String READS = "reads.txt";
+    static final String GRAPH = "graph.bin";
+    static final String UNITIGS = "unitigs.bin";
+    static final String SIMPLIFIED = "simplified.bin";
+    static final String MANIFEST = "manifest.txt";
+
+    private static final String TEMPORARY = ".tmp";
+
+    private final Path directory;
+    private final int k;
+    private final boolean canonical;
+    private final List<String> manifest;
+
+    /**
+     * Constructor - create directory if it doesn't exist.
+     *
+     * @param directory Directory to keep checkpoints in.
+     * @param k         Length of kmer.
+     * @param canonical Whether k-mers are merged with their reverse complements.
+     * @param manifest  Lines describing input and options of assembly.
+     */
+    Checkpoints(final Path directory, final int k, final boolean canonical, final List<String> manifest) {
+        try {
+            this.directory = Files.createDirectories(directory);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Can't create " + directory, e);
+        }
+        this.k = k;
+        this.canonical = canonical;
+        this.manifest = manifest;
+    }
+
+    /**
+     * Remove checkpoints of all stages with their manifest, so outputs of a previous run are never mixed
+     * with the new ones.
+     */
+    void clear() {
+        for (final String stage : new String[]{MANIFEST, READS, GRAPH, UNITIGS, SIMPLIFIED}) {
+            try {
+                Files.deleteIfExists(directory.resolve(stage));
+                Files.deleteIfExists(directory.resolve(stage + TEMPORARY));
+            } catch (final IOException e) {
+                throw new UncheckedIOException("Can't remove " + directory.resolve(stage), e);
+            }
+        }
+    }
+
+    /**
+     * Check whether checkpoints were saved for the same input and options.
+     *
+     * @return True if recorded manifest is equal to the current one.
+     */
+    boolean matches() {
+        final Path path = directory.resolve(MANIFEST);
+        try {
+            return Files.isRegularFile(path) && Files.readAllLines(path).equals(manifest);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Can't read " + path, e);
+        }
+    }
+
+    /**
+     * Record manifest of checkpoints which are going to be saved.
+     */
+    void record() {
+        final Path temporary = directory.resolve(MANIFEST + TEMPORARY);
+        try {
+            Files.write(temporary, manifest);
+            complete(temporary, MANIFEST);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Can't write " + temporary, e);
+        }
+    }
+
+    /**
+     * Check whether the stage is completed.
+     *
+     * @param stage Name of checkpoint.
+     * @return True if there is checkpoint of the stage.
+     */
+    boolean has(final String stage) {
+        return Files.isRegularFile(directory.resolve(stage));
+    }
+
+    /**
+     * Restore graph saved by a completed stage.
+     *
+     * @param stage Name of checkpoint.
+     * @return Graph if there is a valid checkpoint of the stage.
+     */
+    Optional<Graph> graph(final String stage) {
+        if (!has(stage)) {
+            return Optional.empty();
+        }
+        try {
+            final Graph graph = Graph.load(directory.resolve(stage));
+            return graph.k() == k && graph.canonical() == canonical ? Optional.of(graph) : Optional.empty();
+        } catch (final InvalidSnapshot e) {
+            return Optional.empty();
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Can't read " + directory.resolve(stage), e);
+        }
+    }
+
+    /**
+     * Save graph as output of the stage.
+     *
+     * @param stage Name of checkpoint.
+     * @param graph Graph built by the stage.
+     * @return The same graph.
+     */
+    Graph save(final String stage, final Graph graph) {
+        final Path temporary = directory.resolve(stage + TEMPORARY);
+        try {
+            graph.save(temporary);
+            complete(temporary, stage);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Can't write " + temporary, e);
+        }
+        return graph;
+    }
+
+    /**
+     * Restore reads saved by the parsing stage.
+     *
+     * @param parallel Whether reads are consumed by several threads.
+     * @return Stream of saved reads, it has to be closed.
+     */
+    Stream<String> reads(final boolean parallel) {
+        try {
+            final Stream<String> reads = Files.lines(directory.resolve(READS));
+            return parallel ? reads.parallel() : reads;
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Can't read " + directory.resolve(READS), e);
+        }
+    }
+
+    /**
+     * Save all reads as output of the parsing stage.
+     *
+     * @param source   Reads from input source.
+     * @param parallel Whether reads are consumed by several threads.
+     * @return Stream of saved reads, it has to be closed.
+     */
+    Stream<String> reads(final Stream<? extends CharSequence> source, final boolean parallel) {
+        final Path temporary = directory.resolve(READS + TEMPORARY);
+        try (BufferedWriter writer = Files.newBufferedWriter(temporary)) {
+            source.forEach(read -> {
+                synchronized (writer) {
+                    try {
+                        writer.append(read).append('\n');
+                    } catch (final IOException e) {
+                        throw new UncheckedIOException("Can't write " + temporary, e);
+                    }
+                }
+            });
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Can't write " + temporary, e);
+        }
+        try {
+            complete(temporary, READS);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Can't write " + directory.resolve(READS), e);
+        }
+        return reads(parallel);
+    }
+
+    private void complete(final Path temporary, final String stage) throws IOException {
+        Files.move(temporary, directory.resolve(stage),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
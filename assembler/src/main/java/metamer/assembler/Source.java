@@ -0,0 +1,77 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.assembler;
+
+import lombok.Value;
+import lombok.experimental.Accessors;
+import metamer.io.ErrorPolicy;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Description of the input reads are parsed from.
+ * <p>
+ * It is recorded together with checkpoints, so stages saved for other input or parsing options aren't restored.
+ */
+@Value
+@Accessors(fluent = true)
+public class Source {
+    private final List<Path> paths;
+    private final String format;
+    private final int quality;
+    private final ErrorPolicy policy;
+
+    /**
+     * Describe source as lines of checkpoint manifest.
+     * <p>
+     * Every input file is identified by its path, size and time of the last modification.
+     * Standard input can't be identified, so it is recorded as is.
+     *
+     * @return Lines describing source.
+     */
+    List<String> manifest() {
+        final List<String> lines = new ArrayList<>();
+        lines.add("format=" + format);
+        lines.add("quality=" + quality);
+        lines.add("policy=" + policy);
+        if (paths.isEmpty()) {
+            lines.add("input=stdin");
+        }
+        for (final Path path : paths) {
+            try {
+                lines.add("input=" + path.toAbsolutePath() + " size=" + Files.size(path)
+                        + " modified=" + Files.getLastModifiedTime(path).toMillis());
+            } catch (final IOException e) {
+                throw new UncheckedIOException("Can't read attributes of " + path, e);
+            }
+        }
+        return lines;
+    }
+}
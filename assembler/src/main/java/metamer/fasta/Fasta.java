@@ -141,9 +141,21 @@ public class Fasta implements Parser<Record> {
      */
     @Override
     public Either<Exception, Seq<Record>> read(final Stream<String> lines) {
+        return Either.sequenceRight(io.vavr.collection.List.ofAll(records(lines)));
+    }
+
+    /**
+     * Function for creating fasta records from stream of strings lazily.
+     *
+     * Call read(final List<String> lines) for each read list when the record is requested.
+     *
+     * @param lines Stream of lines read from input source.
+     * @return Stream with exception or correct Record for every record.
+     */
+    @Override
+    public Stream<Either<Exception, Record>> records(final Stream<String> lines) {
         final Stream<List<String>> chunks = chunks(splitBefore(line -> line.startsWith(IDENTIFIER_PREFIX)), lines);
-        final Seq<Either<Exception, Record>> eithers = io.vavr.collection.List.ofAll(chunks.map(this::read));
-        return Either.sequenceRight(eithers);
+        return chunks.map(this::read);
     }
 
     /**
@@ -36,19 +36,21 @@ import metamer.fastq.exception.InvalidQualityScoreLineLength;
 import metamer.fastq.exception.InvalidSequenceLine;
 import metamer.io.Parser;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static metamer.utils.Lists.head;
 
-import static metamer.utils.Splitter.splitBefore;
-import static metamer.utils.Streams.chunks;
-
 /**
  * Class for work with fastq format.
  */
 public class FastQ implements Parser<Record> {
-    private static final String IDENTIFIER_PREFIX = "@";
+    static final String IDENTIFIER_PREFIX = "@";
+    static final int LINES = 4;
 
     private static final FastQ instance = new FastQ();
 
@@ -91,10 +93,27 @@ public class FastQ implements Parser<Record> {
      */
     @Override
     public Either<Exception, Seq<Record>> read(final Stream<String> lines) {
-        final Stream<List<String>> chunks = chunks(splitBefore(line -> line.startsWith(IDENTIFIER_PREFIX)), lines);
-        final Seq<Either<Exception, Record>> eithers = io.vavr.collection.List.ofAll(chunks.map(this::read));
-        return Either.sequenceRight(eithers);
+        return Either.sequenceRight(io.vavr.collection.List.ofAll(records(lines)));
+    }
 
+    /**
+     * Function for creating fastq records from stream of strings lazily.
+     *
+     * Call read(final List<String> lines) for each read list when the record is requested.
+     * <p>
+     * Every record takes exactly four lines, empty lines are skipped. Lines aren't split by {@code @},
+     * since a quality line may start with it as well. After an invalid record reading resumes at the next
+     * line starting with {@code @} which is followed by a {@code +} line two lines below.
+     *
+     * @param lines Stream of lines read from input source.
+     * @return Stream with exception or correct Record for every record.
+     */
+    @Override
+    public Stream<Either<Exception, Record>> records(final Stream<String> lines) {
+        final Iterator<String> iterator = lines.filter(line -> !line.isEmpty()).iterator();
+        final Spliterator<Either<Exception, Record>> records =
+                Spliterators.spliteratorUnknownSize(new RecordIterator(iterator, this::read), Spliterator.ORDERED);
+        return StreamSupport.stream(records, false).onClose(lines::close);
     }
 
     /**
@@ -105,7 +124,7 @@ public class FastQ implements Parser<Record> {
      */
     @Override
     public Either<Exception, Record> read(final List<String> lines) {
-        if (lines.size() < 2) {
+        if (lines.size() < LINES) {
             return Either.left(new InvalidNumberOfLines(lines.size()));
         }
         if (Option.none().equals(head(lines))) {
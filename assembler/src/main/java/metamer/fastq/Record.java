@@ -26,14 +26,14 @@ package metamer.fastq;
 
 import lombok.Value;
 import lombok.experimental.Accessors;
-import metamer.io.HasSequence;
+import metamer.io.HasQuality;
 
 /**
  * Class for forming fastq records.
  */
 @Value
 @Accessors(fluent = true)
-public class Record implements HasSequence {
+public class Record implements HasQuality {
     public final String id;
     public final String description;
     public final String sequence;
@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.fastq;
+
+import io.vavr.control.Either;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Lazy parsing of fastq records which recovers after an invalid one.
+ * <p>
+ * Lines are parsed by groups of {@link FastQ#LINES}. When a group isn't a valid record, reading resumes
+ * at the next line which may start a record: a line starting with {@code @} followed by a {@code +} line
+ * two lines below. So a record with a missing or an extra line doesn't shift all records after it.
+ */
+final class RecordIterator implements Iterator<Either<Exception, Record>> {
+    private static final int SEPARATOR = 2;
+    private static final String SEPARATOR_PREFIX = "+";
+
+    private final Iterator<String> lines;
+    private final Function<List<String>, Either<Exception, Record>> parser;
+    private final List<String> buffer = new ArrayList<>(FastQ.LINES);
+
+    /**
+     * Constructor - initializing fields.
+     *
+     * @param lines  Lines read from input source.
+     * @param parser Parser of a single record.
+     */
+    RecordIterator(final Iterator<String> lines, final Function<List<String>, Either<Exception, Record>> parser) {
+        this.lines = lines;
+        this.parser = parser;
+    }
+
+    @Override
+    public boolean hasNext() {
+        fill(1);
+        return !buffer.isEmpty();
+    }
+
+    @Override
+    public Either<Exception, Record> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        fill(FastQ.LINES);
+        final List<String> group = buffer.subList(0, Math.min(FastQ.LINES, buffer.size()));
+        final Either<Exception, Record> record = parser.apply(new ArrayList<>(group));
+        if (record.isRight()) {
+            group.clear();
+        } else {
+            buffer.remove(0);
+            resync();
+        }
+        return record;
+    }
+
+    private void resync() {
+        fill(SEPARATOR + 1);
+        while (!buffer.isEmpty() && !isStart()) {
+            buffer.remove(0);
+            fill(SEPARATOR + 1);
+        }
+    }
+
+    private boolean isStart() {
+        return buffer.get(0).startsWith(FastQ.IDENTIFIER_PREFIX)
+                && buffer.size() > SEPARATOR && buffer.get(SEPARATOR).startsWith(SEPARATOR_PREFIX);
+    }
+
+    private void fill(final int size) {
+        while (buffer.size() < size && lines.hasNext()) {
+            buffer.add(lines.next());
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.fastq;
+
+import metamer.io.HasQuality;
+import metamer.io.HasSequence;
+
+/**
+ * Quality trimming of reads.
+ * <p>
+ * Sequencing errors are mostly found at the ends of reads, every error produces k erroneous k-mers
+ * which become spurious nodes, tips and bubbles of the graph. Bases below the threshold are trimmed
+ * from both ends of a read and the read is cut at the first window of bases whose mean quality
+ * is below the threshold. Quality scores are expected in Phred+33 encoding.
+ */
+public final class Trimmer {
+    private static final int WINDOW = 4;
+    private static final int OFFSET = '!';
+    private static final Trimmer NONE = new Trimmer(0);
+
+    private final int quality;
+    private final int window;
+
+    /**
+     * Constructor - trim by window of four bases.
+     *
+     * @param quality Minimal Phred quality of bases.
+     */
+    public Trimmer(final int quality) {
+        this(quality, WINDOW);
+    }
+
+    /**
+     * Constructor - initializing all fields.
+     *
+     * @param quality Minimal Phred quality of bases.
+     * @param window  Number of bases to average quality over.
+     */
+    public Trimmer(final int quality, final int window) {
+        this.quality = quality;
+        this.window = window;
+    }
+
+    /**
+     * Static constructor - trimmer which keeps reads as is.
+     *
+     * @return Trimmer.
+     */
+    public static Trimmer none() {
+        return NONE;
+    }
+
+    /**
+     * Get minimal Phred quality of bases.
+     *
+     * @return Quality.
+     */
+    public int quality() {
+        return quality;
+    }
+
+    /**
+     * Get number of bases to average quality over.
+     *
+     * @return Window.
+     */
+    public int window() {
+        return window;
+    }
+
+    /**
+     * Function for trimming sequence of record.
+     *
+     * @param record Record, only records with quality scores are trimmed.
+     * @return Trimmed sequence.
+     */
+    public CharSequence trim(final HasSequence record) {
+        if (record instanceof HasQuality) {
+            return trim(record.sequence(), ((HasQuality) record).quality(), 0);
+        }
+        return record.sequence();
+    }
+
+    /**
+     * Function for trimming sequence by its quality scores.
+     *
+     * @param sequence Sequence of read.
+     * @param scores   Array with quality scores in Phred+33 encoding.
+     * @param offset   Index of the score of the first base in array.
+     * @return Trimmed sequence, it may be empty.
+     */
+    public CharSequence trim(final CharSequence sequence, final byte[] scores, final int offset) {
+        if (quality <= 0) {
+            return sequence;
+        }
+        final int length = sequence.length();
+        int start = 0;
+        while (start < length && score(scores, offset + start) < quality) {
+            start++;
+        }
+        int end = length;
+        int sum = 0;
+        for (int i = start; i < length; i++) {
+            sum += score(scores, offset + i);
+            if (i - start >= window) {
+                sum -= score(scores, offset + i - window);
+            }
+            if (i - start + 1 >= window && sum < quality * window) {
+                end = i - window + 1;
+                break;
+            }
+        }
+        while (end > start && score(scores, offset + end - 1) < quality) {
+            end--;
+        }
+        return start == 0 && end == length ? sequence : sequence.subSequence(start, end);
+    }
+
+    private static int score(final byte[] scores, final int index) {
+        return scores[index] - OFFSET;
+    }
+}
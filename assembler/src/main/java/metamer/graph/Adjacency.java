@@ -0,0 +1,213 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.graph;
+
+import java.util.Arrays;
+
+/**
+ * Edges of graph kept in primitive arrays.
+ * <p>
+ * Nodes and edges are identified by dense ids. Outgoing and incoming edges of every node
+ * form singly linked lists threaded through edge arrays, so there is no per-node collection.
+ * Every edge counts how many times it was added. Counts are unsigned 16-bit integers which stop at
+ * {@link #MAX_COUNT}, so a count takes two bytes per edge and never wraps around.
+ */
+final class Adjacency {
+    static final int NONE = -1;
+    static final int MAX_COUNT = Character.MAX_VALUE;
+
+    private int nodes;
+    private int edges;
+
+    private int[] nin;
+    private int[] nout;
+    private int[] firstOut;
+    private int[] firstIn;
+
+    private int[] source;
+    private int[] target;
+    private int[] nextOut;
+    private int[] nextIn;
+    private char[] counts;
+
+    /**
+     * Constructor - create graph without nodes and edges.
+     */
+    Adjacency() {
+        this.nin = new int[16];
+        this.nout = new int[16];
+        this.firstOut = new int[16];
+        this.firstIn = new int[16];
+        this.source = new int[16];
+        this.target = new int[16];
+        this.nextOut = new int[16];
+        this.nextIn = new int[16];
+        this.counts = new char[16];
+        Arrays.fill(firstOut, NONE);
+        Arrays.fill(firstIn, NONE);
+    }
+
+    /**
+     * Make sure that nodes with ids {@code [0, count)} exist.
+     *
+     * @param count Number of nodes.
+     */
+    void nodes(final int count) {
+        if (count > nin.length) {
+            final int capacity = Math.max(count, nin.length * 2);
+            nin = Arrays.copyOf(nin, capacity);
+            nout = Arrays.copyOf(nout, capacity);
+            firstOut = Arrays.copyOf(firstOut, capacity);
+            firstIn = Arrays.copyOf(firstIn, capacity);
+            Arrays.fill(firstOut, nodes, capacity, NONE);
+            Arrays.fill(firstIn, nodes, capacity, NONE);
+        }
+        nodes = Math.max(nodes, count);
+    }
+
+    /**
+     * Add edge if there is no such edge yet, count it otherwise.
+     *
+     * @param from Id of source node.
+     * @param to   Id of target node.
+     * @return Id of the edge.
+     */
+    int link(final int from, final int to) {
+        return link(from, to, 1);
+    }
+
+    /**
+     * Add edge if there is no such edge yet, count it otherwise.
+     * <p>
+     * Counts above {@link #MAX_COUNT} are kept as {@link #MAX_COUNT}.
+     *
+     * @param from  Id of source node.
+     * @param to    Id of target node.
+     * @param count Number of times the edge is added.
+     * @return Id of the edge.
+     */
+    int link(final int from, final int to, final int count) {
+        final int found = find(from, to);
+        if (found != NONE) {
+            counts[found] = saturate((long) counts[found] + count);
+            return found;
+        }
+        return add(from, to, count);
+    }
+
+    /**
+     * Add edge without looking for the same edge, so it has to be new.
+     *
+     * @param from  Id of source node.
+     * @param to    Id of target node.
+     * @param count Number of times the edge was added.
+     * @return Id of the edge.
+     */
+    int add(final int from, final int to, final int count) {
+        if (edges == source.length) {
+            final int capacity = edges * 2;
+            source = Arrays.copyOf(source, capacity);
+            target = Arrays.copyOf(target, capacity);
+            nextOut = Arrays.copyOf(nextOut, capacity);
+            nextIn = Arrays.copyOf(nextIn, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        final int edge = edges++;
+        source[edge] = from;
+        target[edge] = to;
+        nextOut[edge] = firstOut[from];
+        firstOut[from] = edge;
+        nextIn[edge] = firstIn[to];
+        firstIn[to] = edge;
+        counts[edge] = saturate(count);
+        nout[from]++;
+        nin[to]++;
+        return edge;
+    }
+
+    /**
+     * Find edge between nodes.
+     *
+     * @param from Id of source node.
+     * @param to   Id of target node.
+     * @return Id of the edge, {@link #NONE} if there is no such edge.
+     */
+    int find(final int from, final int to) {
+        for (int edge = firstOut[from]; edge != NONE; edge = nextOut[edge]) {
+            if (target[edge] == to) {
+                return edge;
+            }
+        }
+        return NONE;
+    }
+
+    int nodes() {
+        return nodes;
+    }
+
+    int edges() {
+        return edges;
+    }
+
+    int nin(final int node) {
+        return nin[node];
+    }
+
+    int nout(final int node) {
+        return nout[node];
+    }
+
+    int firstOut(final int node) {
+        return firstOut[node];
+    }
+
+    int nextOut(final int edge) {
+        return nextOut[edge];
+    }
+
+    int firstIn(final int node) {
+        return firstIn[node];
+    }
+
+    int nextIn(final int edge) {
+        return nextIn[edge];
+    }
+
+    int source(final int edge) {
+        return source[edge];
+    }
+
+    int target(final int edge) {
+        return target[edge];
+    }
+
+    int count(final int edge) {
+        return counts[edge];
+    }
+
+    private static char saturate(final long count) {
+        return (char) Math.min(count, MAX_COUNT);
+    }
+}
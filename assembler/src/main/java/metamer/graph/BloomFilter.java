@@ -0,0 +1,111 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.graph;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scalable Bloom filter of 64-bit hashes.
+ * <p>
+ * Elements are set in the last layer of bits. When it holds as many elements as it was sized for,
+ * a new layer four times larger is added. So memory stays proportional to the number of added elements,
+ * two bytes per element, while false positive rate of every layer is about one in two thousand.
+ */
+final class BloomFilter {
+    private static final int BITS_PER_ELEMENT = 16;
+    private static final int HASHES = 11;
+    private static final int GROWTH = 4;
+    private static final int MAX_CAPACITY = 1 << 27;
+
+    private final List<long[]> layers = new ArrayList<>();
+    private int capacity;
+    private int size;
+
+    /**
+     * Constructor - create filter with a single layer.
+     *
+     * @param capacity Number of elements the first layer is sized for.
+     */
+    BloomFilter(final int capacity) {
+        this.capacity = capacity;
+        layers.add(layer(capacity));
+    }
+
+    /**
+     * Add element to the filter.
+     *
+     * @param hash Hash of element.
+     * @return Whether element was probably added before, false positives are possible.
+     */
+    boolean add(final long hash) {
+        final long mixed = mix(hash);
+        final long first = mixed >>> Integer.SIZE;
+        final long second = mixed & 0xFFFFFFFFL | 1;
+        for (final long[] layer : layers) {
+            if (contains(layer, first, second)) {
+                return true;
+            }
+        }
+        if (size == capacity) {
+            capacity = Math.min(capacity * GROWTH, MAX_CAPACITY);
+            layers.add(layer(capacity));
+            size = 0;
+        }
+        final long[] layer = layers.get(layers.size() - 1);
+        final long bits = (long) layer.length * Long.SIZE;
+        for (int i = 0; i < HASHES; i++) {
+            final long bit = (first + i * second) % bits;
+            layer[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        size++;
+        return false;
+    }
+
+    private static boolean contains(final long[] layer, final long first, final long second) {
+        final long bits = (long) layer.length * Long.SIZE;
+        for (int i = 0; i < HASHES; i++) {
+            final long bit = (first + i * second) % bits;
+            if ((layer[(int) (bit >>> 6)] & 1L << bit) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long[] layer(final int capacity) {
+        return new long[(int) (((long) capacity * BITS_PER_ELEMENT + Long.SIZE - 1) / Long.SIZE)];
+    }
+
+    private static long mix(final long hash) {
+        long mixed = hash;
+        mixed ^= mixed >>> 33;
+        mixed *= 0xFF51AFD7ED558CCDL;
+        mixed ^= mixed >>> 33;
+        mixed *= 0xC4CEB9FE1A85EC53L;
+        mixed ^= mixed >>> 33;
+        return mixed;
+    }
+}
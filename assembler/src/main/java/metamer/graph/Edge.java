@@ -26,22 +26,35 @@
 package metamer.graph;
 
 import lombok.EqualsAndHashCode;
-import lombok.ToString;
 
 //TODO add documentation
 
-@ToString(exclude = {"current", "next", "isVisited"})
-@EqualsAndHashCode(exclude = {"isVisited", "kmer"})
+@EqualsAndHashCode(exclude = {"isVisited", "k"})
 public class Edge {
     public Node current;
     public Node next;
     public boolean isVisited;
-    public String kmer;
+    private final int k;
 
     Edge(final Node curr, final Node next, final int k) {
         this.current = curr;
         this.next = next;
         this.isVisited = false;
-        this.kmer = curr.kmer.substring(0, curr.kmer.length() - (k - 2)) + next.kmer;
+        this.k = k;
+    }
+
+    /**
+     * Get kmer which corresponds to this edge.
+     *
+     * @return Kmer joining current and next nodes.
+     */
+    public String kmer() {
+        final String kmer = current.kmer();
+        return kmer.substring(0, kmer.length() - (k - 2)) + next.kmer();
+    }
+
+    @Override
+    public String toString() {
+        return "Edge(kmer=" + kmer() + ")";
     }
 }
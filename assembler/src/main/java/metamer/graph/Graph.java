@@ -24,49 +24,153 @@
  */
 package metamer.graph;
 
-import lombok.Value;
-import lombok.experimental.Accessors;
+import metamer.graph.exception.InvalidSnapshot;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Set;
-import java.util.Map;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Stream;
 
-import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toSet;
-import static metamer.utils.Strings.windows;
-
 /**
  * Class for building & optimizing de Bruijn graph.
+ * <p>
+ * Nodes and edges are identified by dense integer ids and kept in primitive arrays:
+ * node sequences in {@link Sequences}, edges and degrees in {@link Adjacency}.
+ * {@link Node} and {@link Edge} objects are created only as views on demand.
+ * <p>
+ * Canonical graph keeps every sequence once for both strands: nodes are {@link Strands} of sequences
+ * and every edge has a twin edge on the opposite strand.
  */
-@Value
-@Accessors(fluent = true)
 public class Graph {
-
-    private final Map<Node, List<Node>> neighbors;
-    private final  Map<String, Node> nodes;
     private final int k;
+    private final Sequences sequences;
+    private final Adjacency adjacency;
+    private final Strands strands;
+    private final boolean canonical;
+    private final char[] coverage;
+
+    Graph(final int k, final Sequences sequences, final Adjacency adjacency) {
+        this(k, sequences, null, adjacency, null);
+    }
+
+    Graph(final int k, final Strands strands, final Adjacency adjacency) {
+        this(k, strands, strands, adjacency, null);
+    }
+
+    Graph(
+            final int k,
+            final Sequences sequences,
+            final Strands strands,
+            final Adjacency adjacency,
+            final char[] coverage) {
+        this.k = k;
+        this.sequences = sequences;
+        this.adjacency = adjacency;
+        this.strands = strands;
+        this.canonical = strands != null;
+        this.coverage = coverage;
+    }
+
+    /**
+     * Get length of kmer.
+     *
+     * @return Length of kmer.
+     */
+    public int k() {
+        return k;
+    }
+
+    Sequences sequences() {
+        return sequences;
+    }
+
+    Adjacency adjacency() {
+        return adjacency;
+    }
+
+    /**
+     * Check whether k-mers are merged with their reverse complements.
+     *
+     * @return True if graph is canonical.
+     */
+    public boolean canonical() {
+        return canonical;
+    }
+
+    Strands strands() {
+        return strands;
+    }
+
+    /**
+     * Get mean number of times k-mers inside of the node were seen.
+     *
+     * @param id Node id.
+     * @return Mean count of k-mers, 0 if node has no k-mers inside.
+     */
+    int coverage(final int id) {
+        return coverage == null ? 0 : coverage[id];
+    }
+
+    /**
+     * Get number of k-mers inside of the node.
+     *
+     * @param id Node id.
+     * @return Number of k-mers spelled by the sequence of node.
+     */
+    int kmers(final int id) {
+        return Math.max(0, sequences.length(id) - k + 1);
+    }
 
-    private void createNodesMap(final String str) {
-        this.nodes.computeIfAbsent(str.substring(0, k - 1), Node::new);
-        this.nodes.computeIfAbsent(str.substring(1, k), Node::new);
+    /**
+     * Get twin of the edge on the opposite strand.
+     *
+     * @param edge Id of edge of canonical graph.
+     * @return Id of twin edge, the same edge if it is its own reverse complement.
+     */
+    int twin(final int edge) {
+        return adjacency.find(strands.opposite(adjacency.target(edge)), strands.opposite(adjacency.source(edge)));
     }
 
-    public void makeNodes(final String str) {
-        windows(str, k).forEach(this::createNodesMap);
+    /**
+     * Create view of node.
+     *
+     * @param id Node id.
+     * @return Node with its kmer and degrees.
+     */
+    Node node(final int id) {
+        final Node node = new Node(sequences.kmer(id));
+        node.nin = adjacency.nin(id);
+        node.nout = adjacency.nout(id);
+        return node;
+    }
+
+    private Node[] views() {
+        final Node[] views = new Node[sequences.size()];
+        for (int id = 0; id < views.length; id++) {
+            views[id] = node(id);
+        }
+        return views;
     }
 
     /**
      * Get set with nodes of our graph.
+     * <p>
+     * Canonical graph gives every node once, as it is stored.
      *
      * @return set of nodes.
      */
     public Set<Node> nodes() {
-        return new HashSet<>(nodes.values());
+        final Set<Node> nodes = new HashSet<>();
+        for (int id = 0; id < sequences.size(); id += canonical ? 2 : 1) {
+            nodes.add(node(id));
+        }
+        return nodes;
     }
 
     /**
@@ -75,99 +179,327 @@ public class Graph {
      * @return Hashmap of neighbours.
      */
     public Map<Node, List<Node>> getNeighbors() {
-        return new HashMap<>(this.neighbors);
+        final Node[] views = views();
+        final Map<Node, List<Node>> neighbors = new HashMap<>();
+        for (int id = 0; id < views.length; id++) {
+            final List<Node> successors = new ArrayList<>(adjacency.nout(id));
+            for (int edge = adjacency.firstOut(id); edge != Adjacency.NONE; edge = adjacency.nextOut(edge)) {
+                successors.add(views[adjacency.target(edge)]);
+            }
+            neighbors.put(views[id], successors);
+        }
+        return neighbors;
     }
 
     /**
      * Get edges for current version of graph.
+     * <p>
+     * Canonical graph gives one edge of every pair of twins.
      *
      * @return HashSet of edges.
      */
     public Set<Edge> edges() {
-        return neighbors.entrySet().stream()
-                .flatMap(e -> e.getValue().stream().map(n -> new Edge(e.getKey(), n, k)))
-                .collect(toSet());
+        final Node[] views = views();
+        final Set<Edge> edges = new HashSet<>();
+        for (int edge = 0; edge < adjacency.edges(); edge++) {
+            if (canonical && twin(edge) < edge) {
+                continue;
+            }
+            edges.add(new Edge(views[adjacency.source(edge)], views[adjacency.target(edge)], k));
+        }
+        return edges;
     }
 
     /**
      * Function for optimizing our graph.
      * <p>
-     * Here we make one edge from several edges which can be connected only in one way.
+     * Here we make one edge from several edges which can be connected only in one way. Every maximal
+     * non-branching path is walked once, its sequence is appended to a single buffer and edges are
+     * rewired by id, so the whole pass is linear in the size of graph.
+     * <p>
+     * In canonical graph a path and its twin on the opposite strand are compacted into a single sequence.
+     * An edge which is its own reverse complement ends a path and a sequence which is its own reverse complement
+     * is never joined with others, so no path meets its twin.
+     * <p>
+     * Edges keep their counts and every sequence gets the mean count of k-mers of its path.
      *
      * @return Optimized version of our graph.
      */
     public Graph optimizeGraph() {
-        Map<String, Node> nodesOptimized = new HashMap<>();
-        Map<Node, List<Node>> neighborsOptimized = neighbors;
-        Set<String> used = new HashSet<>();
+        final int size = sequences.size();
+        final Unitigs unitigs = new Unitigs();
+        final int[] unitig = new int[size];
+        final int[] last = new int[size];
+        final char[] means = new char[size];
+        final boolean[] visited = new boolean[size];
+        for (int id = 1; canonical && id < size; id += 2) {
+            visited[id] = strands.palindrome(id);
+        }
+        for (int id = 0; id < size; id++) {
+            if (!visited[id] && !isInterior(id)) {
+                compact(id, unitigs, unitig, last, means, visited);
+            }
+        }
+        for (int id = 0; id < size; id++) {
+            if (!visited[id]) {
+                compact(id, unitigs, unitig, last, means, visited);
+            }
+        }
 
-        for (final Map.Entry<String, Node> entry : nodes.entrySet()) {
-            final Node first = entry.getValue();
-            if (used.contains(first.kmer)) {
+        final Adjacency compacted = new Adjacency();
+        final int count = canonical ? unitigs.size() * 2 : unitigs.size();
+        compacted.nodes(count);
+        for (int id = 0; id < count; id++) {
+            if (last[id] == Adjacency.NONE) {
                 continue;
             }
-            used.add(first.kmer);
-            StringBuilder newKmer = new StringBuilder(first.kmer);
-            Node last = first;
-            while ((last.nout == 1) && (neighborsOptimized.get(last).get(0).nin == 1) &&
-                    (neighborsOptimized.get(last).get(0) != first)) {
-                final Node tmp = last;
-                last = neighborsOptimized.get(last).get(0);
-                neighborsOptimized.remove(tmp);
-                nodesOptimized.remove(tmp.kmer);
-                used.add(last.kmer);
-                newKmer.append(last.kmer.substring(k - 2));
+            for (int edge = adjacency.firstOut(last[id]); edge != Adjacency.NONE; edge = adjacency.nextOut(edge)) {
+                compacted.link(id, unitig[adjacency.target(edge)], adjacency.count(edge));
             }
+        }
+        final Strands compactedStrands = canonical ? new Strands(unitigs) : null;
+        final Sequences compactedSequences = canonical ? compactedStrands : unitigs;
+        return new Graph(k, compactedSequences, compactedStrands, compacted, Arrays.copyOf(means, count));
+    }
 
-            if (newKmer.toString().equals(first.kmer)) {
-                nodesOptimized.put(first.kmer, first);
+    /**
+     * Function for removing some of nodes of our graph.
+     * <p>
+     * Nodes of canonical graph have to be removed together with their opposite strands.
+     *
+     * @param removed Whether node is removed, by node id.
+     * @return Graph with the rest of nodes and edges between them.
+     */
+    Graph remove(final boolean[] removed) {
+        final int size = sequences.size();
+        final int step = canonical ? 2 : 1;
+        final Unitigs unitigs = new Unitigs();
+        final int[] ids = new int[size];
+        final char[] kept = new char[size];
+        for (int id = 0; id < size; id += step) {
+            if (removed[id]) {
                 continue;
             }
+            sequences.append(unitigs.open(), id, 0);
+            final int unitig = unitigs.close() * step;
+            for (int strand = 0; strand < step; strand++) {
+                ids[id + strand] = unitig + strand;
+                kept[unitig + strand] = (char) coverage(id + strand);
+            }
+        }
+        final Adjacency rest = new Adjacency();
+        rest.nodes(unitigs.size() * step);
+        for (int edge = 0; edge < adjacency.edges(); edge++) {
+            final int source = adjacency.source(edge);
+            final int target = adjacency.target(edge);
+            if (!removed[source] && !removed[target]) {
+                rest.link(ids[source], ids[target], adjacency.count(edge));
+            }
+        }
+        final Strands restStrands = canonical ? new Strands(unitigs) : null;
+        final Sequences restSequences = canonical ? restStrands : unitigs;
+        return new Graph(k, restSequences, restStrands, rest, Arrays.copyOf(kept, unitigs.size() * step));
+    }
 
-            Node node = new Node(newKmer.toString());
-            node.nin = first.nin;
-            node.nout = last.nout;
-            nodesOptimized.put(newKmer.toString(), node);
-
-            neighborsOptimized.put(node, neighborsOptimized.get(last));
-            neighborsOptimized.remove(last);
-            nodesOptimized.remove(last.kmer);
-            for (final Map.Entry<Node, List<Node>> entry2 : neighborsOptimized.entrySet()) {
-                if (entry2.getValue().contains(first)) {
-                    entry2.getValue().add(node);
-                    entry2.getValue().remove(first);
+    /**
+     * Function for removing tips and bubbles from our graph.
+     * <p>
+     * Sequencing errors leave short dead ends and short alternative paths next to the true sequence.
+     * Dead ends shorter than 2k which are seen no more often than another branch of the same node are clipped.
+     * Paths between the same pair of nodes which are almost the same sequence are popped, only the most
+     * covered of them is kept. The rest is compacted again, until nothing is removed.
+     *
+     * @return Optimized version of our graph without tips and bubbles.
+     */
+    public Graph simplify() {
+        return new Simplifier(optimizeGraph()).simplify();
+    }
+
+    private boolean isInterior(final int id) {
+        if (adjacency.nin(id) != 1) {
+            return false;
+        }
+        final int previous = adjacency.source(adjacency.firstIn(id));
+        if (previous == id || adjacency.nout(previous) != 1) {
+            return false;
+        }
+        return !canonical
+                || previous != strands.opposite(id) && !strands.palindrome(id) && !strands.palindrome(previous);
+    }
+
+    private void compact(final int first, final Unitigs unitigs, final int[] unitig,
+                         final int[] last, final char[] means, final boolean[] visited) {
+        final StringBuilder buffer = sequences.append(unitigs.open(), first, 0);
+        visited[first] = true;
+        long total = (long) coverage(first) * kmers(first);
+        long counted = kmers(first);
+        int current = first;
+        while (adjacency.nout(current) == 1) {
+            final int edge = adjacency.firstOut(current);
+            final int next = adjacency.target(edge);
+            if (next == first || !isInterior(next)) {
+                break;
+            }
+            sequences.append(buffer, next, k - 2);
+            visited[next] = true;
+            total += adjacency.count(edge) + (long) coverage(next) * kmers(next);
+            counted += 1 + kmers(next);
+            current = next;
+        }
+        final int id = unitigs.close();
+        final char mean = counted == 0 ? 0 : (char) Math.min(total / counted, Adjacency.MAX_COUNT);
+        if (canonical) {
+            means[id << 1] = mean;
+            means[id << 1 | 1] = mean;
+            for (int node = first; ; node = adjacency.target(adjacency.firstOut(node))) {
+                visited[strands.opposite(node)] = true;
+                if (node == current) {
+                    break;
                 }
             }
+            unitig[first] = id << 1;
+            last[id << 1] = current;
+            if (strands.palindrome(first)) {
+                last[id << 1 | 1] = Adjacency.NONE;
+            } else {
+                unitig[strands.opposite(current)] = id << 1 | 1;
+                last[id << 1 | 1] = strands.opposite(first);
+            }
+        } else {
+            unitig[first] = id;
+            last[id] = current;
+            means[id] = mean;
         }
-
-        return new Graph(neighborsOptimized, nodesOptimized, k);
     }
 
     /**
      * Function for creating initial version of de Bruijn graph from stream of strings.
+     * <p>
+     * Every k-mer of every read becomes an edge between its prefix and its suffix.
      *
+     * @param k      Length of kmer.
      * @param stream Stream of strings read from input source.
+     * @return Initial version of graph.
      */
-    public static Graph graph(final int k, final Stream<String> stream) {
-        final Map<String, Node> nodes = new HashMap<>();
-        final Map<Node, List<Node>> neighbors = new HashMap<>();
-        final Graph graph = new Graph(neighbors, nodes, k);
-        stream.forEach(graph::makeNodes);
-        for (final Map.Entry<String, Node> entry : nodes.entrySet()) {
-            for (final Map.Entry<String, Node> entry2 : nodes.entrySet()) {
-                List<Node> list = neighbors.getOrDefault(entry.getValue(), new ArrayList<>());
-
-                final String firstKey = entry.getKey().substring(1);
-                final String secondKey = entry2.getKey().substring(0, entry2.getKey().length() - 1);
-                if (firstKey.equals(secondKey) && !list.contains(entry2.getValue())) {
-                    list.add(entry2.getValue());
-                    entry.getValue().nout++;
-                    entry2.getValue().nin++;
-                }
-                neighbors.put(entry.getValue(), list);
-            }
+    public static Graph graph(final int k, final Stream<? extends CharSequence> stream) {
+        final GraphBuilder builder = new GraphBuilder(k);
+        stream.forEach(builder::add);
+        return builder.build();
+    }
+
+    /**
+     * Create graph from input source using several threads.
+     *
+     * @param k       Length of kmer.
+     * @param stream  Stream of reads from input source.
+     * @param threads Number of threads, graph is built in the calling thread if it's 1.
+     * @return Initial version of graph.
+     */
+    public static Graph graph(final int k, final Stream<? extends CharSequence> stream, final int threads) {
+        return graph(k, stream, threads, 1);
+    }
+
+    /**
+     * Create graph of solid k-mers from input source using several threads.
+     * <p>
+     * Every k-mer is counted while graph is built, k-mers seen less than {@code minCount} times
+     * are dropped with nodes which are left without edges. K-mers seen once are only remembered
+     * in a Bloom filter, so they don't take place in the graph while it's built.
+     *
+     * @param k        Length of kmer.
+     * @param stream   Stream of reads from input source.
+     * @param threads  Number of threads, graph is built in the calling thread if it's 1.
+     * @param minCount Minimal number of times a k-mer is seen to be kept, every k-mer is kept if it's 1.
+     * @return Initial version of graph.
+     */
+    public static Graph graph(
+            final int k,
+            final Stream<? extends CharSequence> stream,
+            final int threads,
+            final int minCount) {
+        return graph(k, stream, threads, minCount, false);
+    }
+
+    /**
+     * Create graph of solid k-mers from input source using several threads.
+     * <p>
+     * Canonical graph merges every k-mer with its reverse complement, so reads from both strands of the same
+     * sequence share nodes, and every contig is found once, on one of the strands.
+     *
+     * @param k         Length of kmer.
+     * @param stream    Stream of reads from input source.
+     * @param threads   Number of threads, graph is built in the calling thread if it's 1.
+     * @param minCount  Minimal number of times a k-mer is seen to be kept, every k-mer is kept if it's 1.
+     * @param canonical Whether k-mers are merged with their reverse complements.
+     * @return Initial version of graph.
+     */
+    public static Graph graph(
+            final int k,
+            final Stream<? extends CharSequence> stream,
+            final int threads,
+            final int minCount,
+            final boolean canonical) {
+        return graph(k, stream, threads, minCount, canonical, 0);
+    }
+
+    /**
+     * Create graph of solid k-mers from input source under a memory budget.
+     * <p>
+     * If the budget is set, k-mers are partitioned by their minimizers into temporary files, which are counted
+     * one by one, so k-mers seen once never take place in memory all together.
+     *
+     * @param k         Length of kmer.
+     * @param stream    Stream of reads from input source.
+     * @param threads   Number of threads, graph is built in the calling thread if it's 1.
+     * @param minCount  Minimal number of times a k-mer is seen to be kept, every k-mer is kept if it's 1.
+     * @param canonical Whether k-mers are merged with their reverse complements.
+     * @param maxMemory Number of bytes graph construction may take, graph is built in memory if it's 0.
+     * @return Initial version of graph.
+     */
+    public static Graph graph(
+            final int k,
+            final Stream<? extends CharSequence> stream,
+            final int threads,
+            final int minCount,
+            final boolean canonical,
+            final long maxMemory) {
+        if (maxMemory > 0) {
+            return new PartitionedGraphBuilder(k, threads, minCount, canonical, maxMemory).build(stream);
+        }
+        if (threads > 1) {
+            return new ParallelGraphBuilder(k, threads, minCount, canonical).build(stream);
         }
-        return new Graph(neighbors, nodes, k);
+        final GraphBuilder builder = new GraphBuilder(k, minCount > 1, canonical);
+        stream.forEach(builder::add);
+        return builder.solid(minCount).build();
+    }
+
+    /**
+     * Write graph to a binary snapshot file.
+     * <p>
+     * Snapshot keeps sequences of nodes, edges with their counts and coverage of nodes, so graph read back
+     * with {@link #load(Path)} is the same graph, and reads don't have to be parsed again.
+     *
+     * @param path Path to snapshot file, it is overwritten if it exists.
+     * @throws IOException If file can't be written.
+     */
+    public void save(final Path path) throws IOException {
+        GraphSnapshot.write(this, path);
+    }
+
+    /**
+     * Read graph from a binary snapshot file.
+     * <p>
+     * The file is memory mapped, sequences of nodes are read from it when they are needed and only edges
+     * are copied to the heap, so even a large graph is loaded in seconds.
+     *
+     * @param path Path to snapshot file written by {@link #save(Path)}.
+     * @return Graph saved to the file.
+     * @throws InvalidSnapshot If file isn't a snapshot of the current version or it is damaged.
+     * @throws IOException     If file can't be read.
+     */
+    public static Graph load(final Path path) throws IOException {
+        return GraphSnapshot.read(path);
     }
 
     /**
@@ -179,21 +511,17 @@ public class Graph {
      */
     @SafeVarargs
     public static Graph graph(final int k, final Map.Entry<Node, Node>... edges) {
-        final Map<String, Node> nodes = new HashMap<>();
-        final Map<Node, List<Node>> neighbors = new HashMap<>();
+        final Unitigs unitigs = new Unitigs();
+        final Adjacency adjacency = new Adjacency();
+        final Map<Kmer, Integer> ids = new HashMap<>();
         for (final Map.Entry<Node, Node> edge : edges) {
             final Node left = edge.getKey();
             final Node right = edge.getValue();
-            nodes.putIfAbsent(left.kmer, left);
-            nodes.putIfAbsent(right.kmer, right);
-            nodes.get(left.kmer).nout++;
-            nodes.get(right.kmer).nin++;
-            neighbors.merge(nodes.get(left.kmer), new ArrayList<>(Arrays.asList(nodes.get(right.kmer))),
-                    (o, n) -> Stream.concat(o.stream(), n.stream()).collect(toList()));
-            neighbors.merge(nodes.get(right.kmer), new ArrayList<>(),
-                    (o, n) -> Stream.concat(o.stream(), n.stream()).collect(toList()));
+            final int from = ids.computeIfAbsent(left.key(), key -> unitigs.add(left.kmer()));
+            final int to = ids.computeIfAbsent(right.key(), key -> unitigs.add(right.kmer()));
+            adjacency.nodes(unitigs.size());
+            adjacency.link(from, to);
         }
-        return new Graph(neighbors, nodes, k);
+        return new Graph(k, unitigs, adjacency);
     }
 }
-
@@ -0,0 +1,327 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.graph;
+
+import java.util.Arrays;
+
+/**
+ * Mutable de Bruijn graph which is being filled with reads.
+ * <p>
+ * Nodes are (k - 1)-mers kept in a {@link KmerTable}, every k-mer of a read adds an edge
+ * between its prefix and its suffix.
+ * <p>
+ * If solid k-mers are assembled only, a k-mer seen for the first time is remembered in a {@link BloomFilter}
+ * and is added to the graph on the second sighting, so most of erroneous k-mers never reach the table.
+ * <p>
+ * In canonical mode a (k - 1)-mer and its reverse complement are the same entry of the table, the lesser of them
+ * is stored. Ids of nodes are {@link Strands} then, and every edge is added together with its twin on the
+ * opposite strand, so a k-mer read from either strand is counted once.
+ */
+final class GraphBuilder {
+    private static final int FILTER_CAPACITY = 1 << 16;
+
+    private final int k;
+    private final KmerTable kmers;
+    private final Adjacency adjacency;
+    private final long[] window;
+    private final long[] raw;
+    private final KmerConsumer consumer;
+    private final BloomFilter seen;
+    private final boolean canonical;
+    private final Strands strands;
+    private final long[] reverse;
+    private final long[] opposite;
+    private final long[] previousKey;
+    private boolean previousPacked;
+    private boolean previousReversed;
+    private int previous;
+
+    /**
+     * Constructor - create empty graph.
+     *
+     * @param k Length of kmer.
+     */
+    GraphBuilder(final int k) {
+        this(k, false, false);
+    }
+
+    /**
+     * Constructor - create empty graph.
+     *
+     * @param k         Length of kmer.
+     * @param prefilter Whether k-mers seen only once are kept out of the graph.
+     * @param canonical Whether k-mers are merged with their reverse complements.
+     */
+    GraphBuilder(final int k, final boolean prefilter, final boolean canonical) {
+        this.k = k;
+        this.kmers = new KmerTable(k - 1);
+        this.adjacency = new Adjacency();
+        this.window = new long[kmers.words(true)];
+        this.raw = new long[kmers.words(false)];
+        this.consumer = this::accept;
+        this.seen = prefilter ? new BloomFilter(FILTER_CAPACITY) : null;
+        this.canonical = canonical;
+        this.strands = new Strands(kmers);
+        this.reverse = new long[raw.length];
+        this.opposite = new long[raw.length];
+        this.previousKey = new long[raw.length];
+    }
+
+    KmerTable kmers() {
+        return kmers;
+    }
+
+    Adjacency adjacency() {
+        return adjacency;
+    }
+
+    /**
+     * Add all k-mers of the read to the graph.
+     * <p>
+     * Consecutive (k - 1)-mers of the read are encoded with a rolling window, so nucleotide
+     * (k - 1)-mers are never materialized as strings.
+     *
+     * @param read Read from input source.
+     */
+    void add(final CharSequence read) {
+        previous = -1;
+        Kmer.windows(read, k - 1, window, raw, consumer);
+    }
+
+    private void accept(final long[] key, final int offset, final boolean packed) {
+        if (canonical && reverse(key, offset, packed, reverse)) {
+            accept(reverse, 0, packed, true);
+        } else {
+            accept(key, offset, packed, false);
+        }
+    }
+
+    private void accept(final long[] key, final int offset, final boolean packed, final boolean reversed) {
+        if (seen != null) {
+            if (previous >= 0) {
+                edge(previousKey, 0, previousPacked, previousReversed, key, offset, packed, reversed);
+            }
+            System.arraycopy(key, offset, previousKey, 0, kmers.words(packed));
+            previousPacked = packed;
+            previousReversed = reversed;
+            previous = 0;
+            return;
+        }
+        final int current = strand(node(key, offset, packed), reversed);
+        if (previous >= 0) {
+            pair(previous, current, 1);
+        }
+        previous = current;
+    }
+
+    /**
+     * Write reverse complement of (k - 1)-mer and check whether it is the canonical one.
+     *
+     * @param key     Storage of (k - 1)-mer.
+     * @param offset  Index of the first word of (k - 1)-mer.
+     * @param packed  Whether (k - 1)-mer stores nucleotides.
+     * @param reverse Destination for reverse complement.
+     * @return Whether reverse complement is less than (k - 1)-mer itself.
+     */
+    boolean reverse(final long[] key, final int offset, final boolean packed, final long[] reverse) {
+        final int count = kmers.words(packed);
+        Kmer.reverseComplement(key, offset, count, kmers.length(), packed, reverse);
+        return Kmer.compare(reverse, 0, key, offset, count) < 0;
+    }
+
+    private int strand(final int id, final boolean reversed) {
+        return canonical ? id << 1 | (reversed ? 1 : 0) : id;
+    }
+
+    /**
+     * Add node if there is no such node yet.
+     *
+     * @param key    Storage of (k - 1)-mer.
+     * @param offset Index of the first word of (k - 1)-mer.
+     * @param packed Whether (k - 1)-mer stores nucleotides.
+     * @return Id of the node.
+     */
+    int node(final long[] key, final int offset, final boolean packed) {
+        final int id = kmers.add(key, offset, packed);
+        adjacency.nodes(canonical ? kmers.size() * 2 : kmers.size());
+        return id;
+    }
+
+    /**
+     * Add edge between (k - 1)-mers with their nodes or count it if there is such edge already.
+     * <p>
+     * With prefilter, the edge seen for the first time is only remembered, and it is added counted twice
+     * when it is seen again. False positives of the filter let a few single edges in.
+     * In canonical mode (k - 1)-mers have to be canonical, the ones passed reversed stand for their complements.
+     *
+     * @param from         Storage of source (k - 1)-mer.
+     * @param fromOffset   Index of the first word of source (k - 1)-mer.
+     * @param fromPacked   Whether source (k - 1)-mer stores nucleotides.
+     * @param fromReversed Whether source node is reverse complement of the stored (k - 1)-mer.
+     * @param to           Storage of target (k - 1)-mer.
+     * @param toOffset     Index of the first word of target (k - 1)-mer.
+     * @param toPacked     Whether target (k - 1)-mer stores nucleotides.
+     * @param toReversed   Whether target node is reverse complement of the stored (k - 1)-mer.
+     */
+    void edge(final long[] from, final int fromOffset, final boolean fromPacked, final boolean fromReversed,
+              final long[] to, final int toOffset, final boolean toPacked, final boolean toReversed) {
+        if (seen != null) {
+            final long source = side(from, fromOffset, fromPacked, fromReversed);
+            final long target = side(to, toOffset, toPacked, toReversed);
+            if (!seen.add(hash(source, target))) {
+                return;
+            }
+        }
+        final int source = strand(node(from, fromOffset, fromPacked), fromReversed);
+        final int target = strand(node(to, toOffset, toPacked), toReversed);
+        final boolean promoted = seen != null && adjacency.find(source, target) == Adjacency.NONE;
+        pair(source, target, promoted ? 2 : 1);
+    }
+
+    /**
+     * Hash (k - 1)-mer with its strand.
+     * <p>
+     * The lowest bit is the strand, the next one is set if (k - 1)-mer is its own reverse complement,
+     * so it has no opposite strand.
+     */
+    private long side(final long[] key, final int offset, final boolean packed, final boolean reversed) {
+        final int count = kmers.words(packed);
+        boolean palindrome = false;
+        if (canonical && !reversed) {
+            Kmer.reverseComplement(key, offset, count, kmers.length(), packed, opposite);
+            palindrome = Kmer.compare(opposite, 0, key, offset, count) == 0;
+        }
+        final long hash = Kmer.hash(key, offset, count, packed) & 0xFFFFFFFFL;
+        return hash << 2 | (palindrome ? 2 : 0) | (reversed ? 1 : 0);
+    }
+
+    private long hash(final long source, final long target) {
+        if (canonical && opposite(target) < source) {
+            return hash(opposite(target), opposite(source));
+        }
+        return (source << Integer.SIZE + 2) ^ target;
+    }
+
+    private static long opposite(final long side) {
+        return (side & 2) == 0 ? side ^ 1 : side;
+    }
+
+    private void pair(final int from, final int to, final int count) {
+        adjacency.link(from, to, count);
+        if (canonical) {
+            final int twinFrom = strands.opposite(to);
+            final int twinTo = strands.opposite(from);
+            if (twinFrom != from || twinTo != to) {
+                adjacency.link(twinFrom, twinTo, count);
+            }
+        }
+    }
+
+    /**
+     * Add edge between nodes if there is no such edge yet.
+     *
+     * @param from Id of source node.
+     * @param to   Id of target node.
+     */
+    void link(final int from, final int to) {
+        adjacency.link(from, to);
+    }
+
+    /**
+     * Add edge between nodes or count it if there is such edge already.
+     *
+     * @param from  Id of source node.
+     * @param to    Id of target node.
+     * @param count Number of times the edge is added.
+     */
+    void link(final int from, final int to, final int count) {
+        adjacency.link(from, to, count);
+    }
+
+    /**
+     * Copy edges seen at least {@code minCount} times with their nodes into other graph.
+     * <p>
+     * If every edge is copied, nodes without edges are copied as well. Twin edges of canonical graph
+     * are copied as they are.
+     *
+     * @param graph    Graph to copy to.
+     * @param minCount Minimal number of times an edge was added.
+     */
+    void copy(final GraphBuilder graph, final int minCount) {
+        final long[] key = new long[kmers.words(false)];
+        final int[] ids = new int[kmers.size()];
+        Arrays.fill(ids, -1);
+        if (minCount <= 1) {
+            for (int id = 0; id < ids.length; id++) {
+                copy(graph, ids, key, id);
+            }
+        }
+        for (int edge = 0; edge < adjacency.edges(); edge++) {
+            final int count = adjacency.count(edge);
+            if (count >= minCount) {
+                final int source = adjacency.source(edge);
+                final int target = adjacency.target(edge);
+                final int from = strand(copy(graph, ids, key, canonical ? source >> 1 : source), (source & 1) == 1);
+                final int to = strand(copy(graph, ids, key, canonical ? target >> 1 : target), (target & 1) == 1);
+                graph.link(from, to, count);
+            }
+        }
+    }
+
+    private int copy(final GraphBuilder graph, final int[] ids, final long[] key, final int id) {
+        if (ids[id] < 0) {
+            kmers.key(id, key, 0);
+            ids[id] = graph.node(key, 0, kmers.packed(id));
+        }
+        return ids[id];
+    }
+
+    /**
+     * Keep only solid k-mers.
+     * <p>
+     * K-mers seen less than {@code minCount} times are mostly sequencing errors, so only edges
+     * seen at least {@code minCount} times and nodes they connect are kept.
+     *
+     * @param minCount Minimal number of times a k-mer was seen.
+     * @return Graph with solid k-mers, this graph if every k-mer is kept.
+     */
+    GraphBuilder solid(final int minCount) {
+        if (minCount <= 1) {
+            return this;
+        }
+        final GraphBuilder graph = new GraphBuilder(k, false, canonical);
+        copy(graph, minCount);
+        return graph;
+    }
+
+    /**
+     * Finish building.
+     *
+     * @return Graph with all added reads.
+     */
+    Graph build() {
+        return canonical ? new Graph(k, strands, adjacency) : new Graph(k, kmers, adjacency);
+    }
+}
@@ -24,13 +24,19 @@
  */
 package metamer.graph;
 
-import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static java.util.Comparator.comparing;
-import static java.util.Comparator.comparingInt;
+import static java.util.stream.Collectors.toList;
 
 /**
  * Class to find Euler's ways in de Bruijn graph.
@@ -38,10 +44,9 @@ import static java.util.Comparator.comparingInt;
 public class GraphCycle {
     private final Graph graph;
     private final int k;
-    private final List<String> contigs;
 
     /**
-     * Constructor - initializing fields & paint all nodes into WHITE color.
+     * Constructor - initializing fields.
      *
      * @param graph Pptimized version of graph from previous stages.
      * @param k Length of kmer.
@@ -49,43 +54,164 @@ public class GraphCycle {
     public GraphCycle(final Graph graph, final int k) {
         this.graph = graph;
         this.k = k;
-        this.contigs = new ArrayList<>();
     }
 
     /**
-     * Realization of finding Eiler's path.
+     * Function for finding contigs along Euler's trails lazily.
+     * <p>
+     * Every contig is produced as soon as its trail is finished, so only the contigs of a single walk
+     * are kept in memory.
      *
-     * @param currentNode Node with start position, tree root.
-     * @param str current version of result string.
-     * @param map map with node and all his neighbours.
+     * @return Stream of contigs in order they were found.
      */
-    private void dfc(final Node currentNode, final String str, final Map<Node, List<Node>> map) {
-        final List<Node> relatedNodes = new ArrayList<>(map.get(currentNode));
+    public Stream<String> contigs() {
+        return coveredContigs().map(Contig::sequence);
+    }
 
-        if (relatedNodes.size() != 0) {
-            for (final Node node : relatedNodes) {
-                map.get(currentNode).remove(node);
-                dfc(node, str + currentNode.kmer.substring(0, currentNode.kmer.length() - (k - 2)), map);
-                map.get(currentNode).clear();
-                map.get(currentNode).addAll(relatedNodes);
-            }
-        } else {
-            contigs.add(str + currentNode.kmer);
-        }
+    /**
+     * Function for finding contigs along Euler's trails lazily together with their coverage.
+     * <p>
+     * Coverage of a contig is the mean count of k-mers along its trail: k-mers inside of compacted nodes
+     * are counted with the mean coverage of the node and k-mers joining nodes with the count of their edge.
+     *
+     * @return Stream of contigs with coverage in order they were found.
+     */
+    public Stream<Contig> coveredContigs() {
+        final Spliterator<Contig> spliterator = Spliterators.spliteratorUnknownSize(
+                new Trails(), Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false);
     }
 
     /**
-     * Function for finding node with minimum nin.
+     * Function for finding the longest contigs along Euler's trails.
      *
      * @return stream of strings equal with the first string length.
      */
     public Stream<String> findCycle() {
-        graph
-                .nodes()
-                .stream()
-                .min(comparingInt(Node::nin))
-                .ifPresent(entryPoint -> dfc(entryPoint, "", graph.getNeighbors()));
-        contigs.sort(comparing(String::length).reversed());
+        final List<String> contigs = contigs().sorted(comparing(String::length).reversed()).collect(toList());
         return contigs.stream().filter(line -> line.length() == contigs.get(0).length());
     }
+
+    /**
+     * Realization of finding Euler's trails with Hierholzer's algorithm.
+     * <p>
+     * Every edge is walked exactly once with an explicit stack, so the search is linear in the number
+     * of edges. Walks start from nodes with more outgoing than incoming edges, then from any node with
+     * unused edges. When graph has no Euler's path, the walk is cut into several trails, every trail
+     * becomes a contig. Components without any edges become contigs on their own.
+     * <p>
+     * In canonical graph walking an edge uses its twin as well, so every sequence is spelled on one strand only.
+     */
+    private final class Trails implements Iterator<Contig> {
+        private final Adjacency adjacency = graph.adjacency();
+        private final Sequences sequences = graph.sequences();
+        private final boolean canonical = graph.canonical();
+        private final boolean[] used = new boolean[canonical ? adjacency.edges() : 0];
+        private final int[] cursor = new int[adjacency.nodes()];
+        private final Queue<Contig> ready = new ArrayDeque<>();
+        private int[] stack = new int[16];
+        private int[] trail = new int[16];
+        private int next;
+        private boolean unbalanced = true;
+
+        private Trails() {
+            for (int id = 0; id < cursor.length; id++) {
+                cursor[id] = adjacency.firstOut(id);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (ready.isEmpty() && (unbalanced || next < cursor.length)) {
+                if (next == cursor.length) {
+                    unbalanced = false;
+                    next = 0;
+                    continue;
+                }
+                final int id = next++;
+                if (canonical) {
+                    skipUsed(id);
+                }
+                if (cursor[id] != Adjacency.NONE) {
+                    if (!unbalanced || adjacency.nout(id) > adjacency.nin(id)) {
+                        walk(id);
+                    }
+                } else if (!unbalanced && adjacency.nin(id) == 0 && adjacency.nout(id) == 0
+                        && !(canonical && (id & 1) == 1)) {
+                    final String sequence = sequences.append(new StringBuilder(), id, 0).toString();
+                    ready.add(new Contig(sequence, graph.coverage(id)));
+                }
+            }
+            return !ready.isEmpty();
+        }
+
+        @Override
+        public Contig next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return ready.remove();
+        }
+
+        private void walk(final int start) {
+            int depth = 0;
+            stack[depth++] = start;
+            int length = 0;
+            boolean advanced = false;
+            int resume = Adjacency.NONE;
+            while (depth > 0) {
+                final int current = stack[depth - 1];
+                if (canonical) {
+                    skipUsed(current);
+                }
+                final int edge = cursor[current];
+                if (edge != Adjacency.NONE) {
+                    cursor[current] = adjacency.nextOut(edge);
+                    if (canonical) {
+                        used[edge] = true;
+                        used[graph.twin(edge)] = true;
+                    }
+                    if (depth == stack.length) {
+                        stack = Arrays.copyOf(stack, depth * 2);
+                    }
+                    stack[depth++] = adjacency.target(edge);
+                    advanced = true;
+                    continue;
+                }
+                depth--;
+                if (advanced && length > 0 && current != resume) {
+                    trail[length++] = resume;
+                    emit(length);
+                    length = 0;
+                }
+                if (length + 1 >= trail.length) {
+                    trail = Arrays.copyOf(trail, trail.length * 2);
+                }
+                trail[length++] = current;
+                advanced = false;
+                resume = depth > 0 ? stack[depth - 1] : Adjacency.NONE;
+            }
+            emit(length);
+        }
+
+        private void skipUsed(final int id) {
+            while (cursor[id] != Adjacency.NONE && used[cursor[id]]) {
+                cursor[id] = adjacency.nextOut(cursor[id]);
+            }
+        }
+
+        private void emit(final int length) {
+            final int first = trail[length - 1];
+            final StringBuilder contig = sequences.append(new StringBuilder(), first, 0);
+            long total = (long) graph.coverage(first) * graph.kmers(first);
+            long counted = graph.kmers(first);
+            for (int i = length - 2; i >= 0; i--) {
+                sequences.append(contig, trail[i], k - 2);
+                total += adjacency.count(adjacency.find(trail[i + 1], trail[i]))
+                        + (long) graph.coverage(trail[i]) * graph.kmers(trail[i]);
+                counted += 1 + graph.kmers(trail[i]);
+            }
+            ready.add(new Contig(contig.toString(), counted == 0 ? 0 : (double) total / counted));
+        }
+    }
 }
@@ -0,0 +1,422 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.graph;
+
+import metamer.graph.exception.InvalidSnapshot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of graph which is read back by memory mapping.
+ * <p>
+ * The file starts with a header of {@link #HEADER} bytes: magic number, version of format, length of kmer,
+ * flags, numbers of sequences, nodes and edges, total number of symbols and CRC-32 of the file.
+ * Sections of primitive values follow, each of them starts at a multiple of 8 bytes:
+ * <ul>
+ *     <li>offsets of sequences, {@code long} per sequence and one more for the end;</li>
+ *     <li>symbols, 2 bits per nucleotide packed into {@code long} words if every symbol is a nucleotide,
+ *     {@code char} per symbol otherwise;</li>
+ *     <li>sources of edges, {@code int} per edge;</li>
+ *     <li>targets of edges, {@code int} per edge;</li>
+ *     <li>counts of edges, {@code char} per edge;</li>
+ *     <li>coverage of nodes, {@code char} per node.</li>
+ * </ul>
+ * Canonical graph keeps sequences of one strand only, as it does in memory.
+ * <p>
+ * The checksum and offsets of sequences are verified when the file is read, so a damaged snapshot is rejected
+ * as a whole. Sequences are read from the mapped file when they are needed, so nothing is created per node.
+ * Edges are copied into {@link Adjacency} in the order they are stored, so ids of nodes and edges stay the same.
+ */
+final class GraphSnapshot {
+    private static final int HEADER = 64;
+    private static final int VERSION = 2;
+    private static final int CHECKSUM = 40;
+    private static final long MAGIC = 0x4D544D5247525048L;
+    private static final int CANONICAL = 1;
+    private static final int PACKED = 2;
+    private static final int BUFFER = 1 << 16;
+    private static final int SYMBOLS_PER_WORD = Long.SIZE / Kmer.PACKED_BITS;
+
+    private GraphSnapshot() {
+    }
+
+    /**
+     * Write graph to file.
+     *
+     * @param graph Graph to write.
+     * @param path  Path to file, it is overwritten if it exists.
+     * @throws IOException If file can't be written.
+     */
+    static void write(final Graph graph, final Path path) throws IOException {
+        final Sequences sequences = graph.sequences();
+        final Adjacency adjacency = graph.adjacency();
+        final int step = graph.canonical() ? 2 : 1;
+        final StringBuilder sequence = new StringBuilder();
+        long symbols = 0;
+        boolean packed = true;
+        for (int id = 0; id < sequences.size(); id += step) {
+            sequence.setLength(0);
+            sequences.append(sequence, id, 0);
+            symbols += sequence.length();
+            packed = packed && Kmer.isNucleotides(sequence, 0, sequence.length());
+        }
+        try (Output out = new Output(path)) {
+            out.writeLong(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(graph.k());
+            out.writeInt((graph.canonical() ? CANONICAL : 0) | (packed ? PACKED : 0));
+            out.writeInt(sequences.size() / step);
+            out.writeInt(adjacency.nodes());
+            out.writeInt(adjacency.edges());
+            out.writeLong(symbols);
+            out.writeLong(0);
+            out.pad(HEADER);
+
+            long offset = 0;
+            out.writeLong(offset);
+            for (int id = 0; id < sequences.size(); id += step) {
+                offset += sequences.length(id);
+                out.writeLong(offset);
+            }
+            writeSymbols(out, sequences, step, packed);
+            out.pad(Long.BYTES);
+            for (int edge = 0; edge < adjacency.edges(); edge++) {
+                out.writeInt(adjacency.source(edge));
+            }
+            out.pad(Long.BYTES);
+            for (int edge = 0; edge < adjacency.edges(); edge++) {
+                out.writeInt(adjacency.target(edge));
+            }
+            out.pad(Long.BYTES);
+            for (int edge = 0; edge < adjacency.edges(); edge++) {
+                out.writeChar(adjacency.count(edge));
+            }
+            out.pad(Long.BYTES);
+            for (int id = 0; id < adjacency.nodes(); id++) {
+                out.writeChar(graph.coverage(id));
+            }
+            out.pad(Long.BYTES);
+        }
+    }
+
+    /**
+     * Read graph from file.
+     *
+     * @param path Path to file written by {@link #write(Graph, Path)}.
+     * @return Graph with the same nodes and edges.
+     * @throws InvalidSnapshot If file isn't a snapshot of this version or it is damaged.
+     * @throws IOException     If file can't be read.
+     */
+    static Graph read(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER) {
+                throw new InvalidSnapshot(path, "it is too short to have a header");
+            }
+            final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+            if (header.getLong() != MAGIC) {
+                throw new InvalidSnapshot(path, "it doesn't start with a graph snapshot header");
+            }
+            final int version = header.getInt();
+            if (version != VERSION) {
+                throw new InvalidSnapshot(path, "version " + VERSION + " is expected, but it is " + version);
+            }
+            final int k = header.getInt();
+            final int flags = header.getInt();
+            final int size = header.getInt();
+            final int nodes = header.getInt();
+            final int edges = header.getInt();
+            final long symbols = header.getLong();
+            final long checksum = header.getLong();
+            final int step = (flags & CANONICAL) != 0 ? 2 : 1;
+            if (k < 2 || size < 0 || edges < 0 || symbols < 0 || nodes != (long) size * step) {
+                throw new InvalidSnapshot(path, "its header is damaged");
+            }
+            final boolean packed = (flags & PACKED) != 0;
+            final long offsetsSize = (size + 1L) * Long.BYTES;
+            final long symbolsSize = packed
+                    ? (symbols + SYMBOLS_PER_WORD - 1) / SYMBOLS_PER_WORD * Long.BYTES
+                    : aligned(symbols * Character.BYTES);
+            final long edgesSize = aligned((long) edges * Integer.BYTES);
+            final long countsSize = aligned((long) edges * Character.BYTES);
+            final long coverageSize = aligned((long) nodes * Character.BYTES);
+            if (HEADER + offsetsSize + symbolsSize + 2 * edgesSize + countsSize + coverageSize != channel.size()) {
+                throw new InvalidSnapshot(path, "its size doesn't match its header");
+            }
+
+            long position = HEADER;
+            final Section offsets = new Section(channel, position, offsetsSize);
+            position += offsetsSize;
+            final Section text = new Section(channel, position, symbolsSize);
+            position += symbolsSize;
+            final Section sources = new Section(channel, position, edgesSize);
+            position += edgesSize;
+            final Section targets = new Section(channel, position, edgesSize);
+            position += edgesSize;
+            final Section counts = new Section(channel, position, countsSize);
+            position += countsSize;
+            final Section coverage = new Section(channel, position, coverageSize);
+            final CRC32 crc = new CRC32();
+            crc.update(ByteBuffer.allocate(HEADER).put(header.clear()).putLong(CHECKSUM, 0).flip());
+            for (final Section section : new Section[]{offsets, text, sources, targets, counts, coverage}) {
+                section.update(crc);
+            }
+            if (crc.getValue() != checksum) {
+                throw new InvalidSnapshot(path, "its checksum doesn't match its content");
+            }
+            validateOffsets(path, offsets, size, symbols);
+
+            final Adjacency adjacency = new Adjacency();
+            adjacency.nodes(nodes);
+            for (int edge = 0; edge < edges; edge++) {
+                final int source = sources.getInt(edge);
+                final int target = targets.getInt(edge);
+                if (source < 0 || source >= nodes || target < 0 || target >= nodes) {
+                    throw new InvalidSnapshot(path, "its edge " + edge + " joins missing nodes");
+                }
+                adjacency.add(source, target, counts.getChar(edge));
+            }
+            final char[] means = new char[nodes];
+            for (int id = 0; id < nodes; id++) {
+                means[id] = coverage.getChar(id);
+            }
+            final Sequences sequences = new MappedSequences(offsets, text, size, packed);
+            if ((flags & CANONICAL) != 0) {
+                final Strands strands = new Strands(sequences);
+                return new Graph(k, strands, strands, adjacency, means);
+            }
+            return new Graph(k, sequences, null, adjacency, means);
+        }
+    }
+
+    private static void validateOffsets(final Path path, final Section offsets, final int size, final long symbols)
+            throws InvalidSnapshot {
+        long previous = 0;
+        for (int id = 0; id <= size; id++) {
+            final long offset = offsets.getLong(id);
+            if (id == 0 ? offset != 0 : offset < previous || offset - previous > Integer.MAX_VALUE) {
+                throw new InvalidSnapshot(path, "offset of its sequence " + id + " is out of order");
+            }
+            previous = offset;
+        }
+        if (previous != symbols) {
+            throw new InvalidSnapshot(path, "its sequences don't end with its symbols");
+        }
+    }
+
+    private static void writeSymbols(final Output out, final Sequences sequences, final int step,
+                                     final boolean packed) throws IOException {
+        final StringBuilder sequence = new StringBuilder();
+        long word = 0;
+        int count = 0;
+        for (int id = 0; id < sequences.size(); id += step) {
+            sequence.setLength(0);
+            sequences.append(sequence, id, 0);
+            for (int i = 0; i < sequence.length(); i++) {
+                if (!packed) {
+                    out.writeChar(sequence.charAt(i));
+                    continue;
+                }
+                word |= (long) Kmer.code(sequence.charAt(i)) << (count * Kmer.PACKED_BITS);
+                if (++count == SYMBOLS_PER_WORD) {
+                    out.writeLong(word);
+                    word = 0;
+                    count = 0;
+                }
+            }
+        }
+        if (count > 0) {
+            out.writeLong(word);
+        }
+    }
+
+    private static long aligned(final long size) {
+        return (size + Long.BYTES - 1) & -Long.BYTES;
+    }
+
+    /**
+     * Buffered writer of primitive values to file channel.
+     * <p>
+     * CRC-32 of the file is put into the header when the file is closed, the checksum itself is taken as zero.
+     */
+    private static final class Output implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER);
+        private final CRC32 crc = new CRC32();
+        private long position;
+
+        private Output(final Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        private void writeLong(final long value) throws IOException {
+            reserve(Long.BYTES).putLong(value);
+        }
+
+        private void writeInt(final int value) throws IOException {
+            reserve(Integer.BYTES).putInt(value);
+        }
+
+        private void writeChar(final int value) throws IOException {
+            reserve(Character.BYTES).putChar((char) value);
+        }
+
+        /**
+         * Write zeros up to the next multiple of {@code alignment} bytes from the beginning of file.
+         */
+        private void pad(final int alignment) throws IOException {
+            while ((position + buffer.position()) % alignment != 0) {
+                reserve(Byte.BYTES).put((byte) 0);
+            }
+        }
+
+        private ByteBuffer reserve(final int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+            return buffer;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+                final ByteBuffer checksum = ByteBuffer.allocate(Long.BYTES).putLong(0, crc.getValue());
+                while (checksum.hasRemaining()) {
+                    channel.write(checksum, CHECKSUM + checksum.position());
+                }
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Region of file mapped in chunks, since a single mapping can't be longer than 2 GB.
+     */
+    private static final class Section {
+        private static final int CHUNK_BITS = 30;
+        private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+        private final ByteBuffer[] chunks;
+
+        private Section(final FileChannel channel, final long position, final long size) throws IOException {
+            this.chunks = new ByteBuffer[(int) ((size + CHUNK_MASK) >>> CHUNK_BITS)];
+            for (int i = 0; i < chunks.length; i++) {
+                final long start = (long) i << CHUNK_BITS;
+                final long length = Math.min(size - start, 1L << CHUNK_BITS);
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + start, length);
+            }
+        }
+
+        private void update(final CRC32 crc) {
+            for (final ByteBuffer chunk : chunks) {
+                crc.update(chunk.duplicate());
+            }
+        }
+
+        private long getLong(final long index) {
+            final long at = index * Long.BYTES;
+            return chunks[(int) (at >>> CHUNK_BITS)].getLong((int) (at & CHUNK_MASK));
+        }
+
+        private int getInt(final long index) {
+            final long at = index * Integer.BYTES;
+            return chunks[(int) (at >>> CHUNK_BITS)].getInt((int) (at & CHUNK_MASK));
+        }
+
+        private char getChar(final long index) {
+            final long at = index * Character.BYTES;
+            return chunks[(int) (at >>> CHUNK_BITS)].getChar((int) (at & CHUNK_MASK));
+        }
+    }
+
+    /**
+     * Sequences read from mapped sections of snapshot.
+     */
+    private static final class MappedSequences implements Sequences {
+        private final Section offsets;
+        private final Section symbols;
+        private final int size;
+        private final boolean packed;
+
+        private MappedSequences(final Section offsets, final Section symbols, final int size, final boolean packed) {
+            this.offsets = offsets;
+            this.symbols = symbols;
+            this.size = size;
+            this.packed = packed;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public int length(final int id) {
+            return (int) (offsets.getLong(id + 1) - offsets.getLong(id));
+        }
+
+        @Override
+        public Kmer kmer(final int id) {
+            return Kmer.of(append(new StringBuilder(length(id)), id, 0));
+        }
+
+        @Override
+        public char charAt(final int id, final int index) {
+            final long position = offsets.getLong(id) + index;
+            if (!packed) {
+                return symbols.getChar(position);
+            }
+            final long word = symbols.getLong(position / SYMBOLS_PER_WORD);
+            final long shift = position % SYMBOLS_PER_WORD * Kmer.PACKED_BITS;
+            return Kmer.nucleotide((int) (word >>> shift) & ((1 << Kmer.PACKED_BITS) - 1));
+        }
+
+        @Override
+        public StringBuilder append(final StringBuilder builder, final int id, final int from) {
+            final int length = length(id);
+            for (int i = from; i < length; i++) {
+                builder.append(charAt(id, i));
+            }
+            return builder;
+        }
+    }
+}
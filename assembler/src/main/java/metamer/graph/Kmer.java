@@ -0,0 +1,465 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.graph;
+
+import metamer.utils.Strings;
+import metamer.utils.WindowConsumer;
+
+import java.util.Arrays;
+
+/**
+ * Packed representation of k-mer.
+ * <p>
+ * Nucleotide sequences (consisting only of {@code A}, {@code C}, {@code G} and {@code T}) are stored
+ * with 2 bits per base, so k-mer with k up to 32 takes a single {@code long}. Any other sequence is stored
+ * with 16 bits per symbol, which keeps the graph usable for arbitrary alphabets.
+ * <p>
+ * Symbols are laid out as one big number spread over several words: the last symbol of k-mer
+ * occupies the lowest bits of the last word. This makes appending a symbol to a rolling window a shift.
+ */
+public final class Kmer {
+    static final int PACKED_BITS = 2;
+    static final int RAW_BITS = 16;
+
+    private static final String BASES = "ACGT";
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+    private static final long PAIRS = 0x5555555555555555L;
+    private static final int WORD_SYMBOLS = Long.SIZE / PACKED_BITS;
+
+    private final long[] words;
+    private final int length;
+    private final boolean packed;
+
+    Kmer(final long[] words, final int length, final boolean packed) {
+        this.words = words;
+        this.length = length;
+        this.packed = packed;
+    }
+
+    /**
+     * Create k-mer from the whole sequence.
+     *
+     * @param sequence Sequence of symbols.
+     * @return Packed k-mer.
+     */
+    public static Kmer of(final CharSequence sequence) {
+        return of(sequence, 0, sequence.length());
+    }
+
+    /**
+     * Create k-mer from the part of sequence.
+     *
+     * @param sequence Sequence of symbols.
+     * @param from     Index of the first symbol, inclusive.
+     * @param to       Index of the last symbol, exclusive.
+     * @return Packed k-mer.
+     */
+    public static Kmer of(final CharSequence sequence, final int from, final int to) {
+        final int length = to - from;
+        final boolean packed = isNucleotides(sequence, from, to);
+        final long[] words = new long[words(length, bits(packed))];
+        encode(sequence, from, to, packed, words, 0);
+        return new Kmer(words, length, packed);
+    }
+
+    /**
+     * Encode the part of sequence into {@code words} starting from {@code offset}.
+     *
+     * @param sequence Sequence of symbols.
+     * @param from     Index of the first symbol, inclusive.
+     * @param to       Index of the last symbol, exclusive.
+     * @param packed   Whether to use 2 bits per symbol, all symbols have to be nucleotides then.
+     * @param words    Destination.
+     * @param offset   Index of the first word to write.
+     */
+    static void encode(final CharSequence sequence, final int from, final int to, final boolean packed,
+                       final long[] words, final int offset) {
+        final int length = to - from;
+        final int bits = bits(packed);
+        final int count = words(length, bits);
+        for (int i = offset; i < offset + count; i++) {
+            words[i] = 0;
+        }
+        for (int i = from; i < to; i++) {
+            shift(words, offset, count, length, bits, symbol(sequence.charAt(i), packed));
+        }
+    }
+
+    /**
+     * Get 2-bit code of nucleotide.
+     *
+     * @param symbol Symbol from sequence.
+     * @return Code from 0 to 3 or -1 if symbol is not a nucleotide.
+     */
+    static int code(final char symbol) {
+        switch (symbol) {
+            case 'A':
+                return 0;
+            case 'C':
+                return 1;
+            case 'G':
+                return 2;
+            case 'T':
+                return 3;
+            default:
+                return -1;
+        }
+    }
+
+    static int bits(final boolean packed) {
+        return packed ? PACKED_BITS : RAW_BITS;
+    }
+
+    /**
+     * Get number of words needed to store k-mer.
+     *
+     * @param length Number of symbols.
+     * @param bits   Number of bits per symbol.
+     * @return Number of {@code long} words.
+     */
+    static int words(final int length, final int bits) {
+        return (int) (((long) length * bits + Long.SIZE - 1) / Long.SIZE);
+    }
+
+    static boolean isNucleotides(final CharSequence sequence, final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            if (code(sequence.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static long symbol(final char symbol, final boolean packed) {
+        return packed ? code(symbol) : symbol;
+    }
+
+    /**
+     * Pass all k-mers of the sequence to consumer one by one.
+     * <p>
+     * Nucleotide k-mers are produced by a rolling window, k-mers containing other symbols
+     * fall back to 16 bits per symbol. K-mers which fit into a single word are rolled by
+     * {@link Strings#windows(CharSequence, int, WindowConsumer)}, nothing is allocated per k-mer.
+     *
+     * @param sequence Sequence of symbols.
+     * @param length   Length of k-mer.
+     * @param window   Storage for packed k-mer, at least {@code words(length, PACKED_BITS)} long.
+     * @param raw      Storage for other k-mers, at least {@code words(length, RAW_BITS)} long.
+     * @param consumer Receiver of k-mers.
+     */
+    static void windows(final CharSequence sequence, final int length,
+                        final long[] window, final long[] raw, final KmerConsumer consumer) {
+        if (length >= 1 && length <= WORD_SYMBOLS) {
+            new Windows(sequence, length, window, raw, consumer).run();
+            return;
+        }
+        final int count = words(length, PACKED_BITS);
+        int run = 0;
+        for (int i = 0; i < sequence.length(); i++) {
+            final int code = code(sequence.charAt(i));
+            if (code < 0) {
+                run = 0;
+            } else {
+                shift(window, 0, count, length, PACKED_BITS, code);
+                run++;
+            }
+            if (i + 1 < length) {
+                continue;
+            }
+            if (run >= length) {
+                consumer.accept(window, 0, true);
+            } else {
+                encode(sequence, i + 1 - length, i + 1, false, raw, 0);
+                consumer.accept(raw, 0, false);
+            }
+        }
+    }
+
+    /**
+     * Append symbol to the end of k-mer stored in {@code words[offset, offset + count)} dropping the first one.
+     *
+     * @param words  Storage of k-mer.
+     * @param offset Index of the first word of k-mer.
+     * @param count  Number of words of k-mer.
+     * @param length Number of symbols in k-mer.
+     * @param bits   Number of bits per symbol.
+     * @param symbol Code of symbol to append.
+     */
+    static void shift(final long[] words, final int offset, final int count,
+                      final int length, final int bits, final long symbol) {
+        if (count == 0) {
+            return;
+        }
+        final int last = offset + count - 1;
+        for (int i = offset; i < last; i++) {
+            words[i] = (words[i] << bits) | (words[i + 1] >>> (Long.SIZE - bits));
+        }
+        words[last] = (words[last] << bits) | symbol;
+        final long top = (long) length * bits - (long) (count - 1) * Long.SIZE;
+        if (top < Long.SIZE) {
+            words[offset] &= (1L << top) - 1;
+        }
+    }
+
+    /**
+     * Get symbol from k-mer stored in {@code words[offset, offset + count)}.
+     *
+     * @param words  Storage of k-mer.
+     * @param offset Index of the first word of k-mer.
+     * @param count  Number of words of k-mer.
+     * @param length Number of symbols in k-mer.
+     * @param packed Whether k-mer stores nucleotides.
+     * @param index  Index of symbol.
+     * @return Symbol.
+     */
+    static char charAt(final long[] words, final int offset, final int count,
+                       final int length, final boolean packed, final int index) {
+        final int value = (int) symbol(words, offset, count, length, bits(packed), index);
+        return packed ? BASES.charAt(value) : (char) value;
+    }
+
+    /**
+     * Get nucleotide by its 2-bit code.
+     *
+     * @param code Code from 0 to 3.
+     * @return Nucleotide.
+     */
+    static char nucleotide(final int code) {
+        return BASES.charAt(code);
+    }
+
+    private static long symbol(final long[] words, final int offset, final int count,
+                               final int length, final int bits, final int index) {
+        final long position = (long) (length - 1 - index) * bits;
+        final long word = words[offset + count - 1 - (int) (position / Long.SIZE)];
+        return (word >>> (position % Long.SIZE)) & ((1L << bits) - 1);
+    }
+
+    /**
+     * Get complementary nucleotide, any other symbol is complementary to itself.
+     *
+     * @param symbol Symbol from sequence.
+     * @return Complementary symbol.
+     */
+    static char complement(final char symbol) {
+        switch (symbol) {
+            case 'A':
+                return 'T';
+            case 'C':
+                return 'G';
+            case 'G':
+                return 'C';
+            case 'T':
+                return 'A';
+            default:
+                return symbol;
+        }
+    }
+
+    /**
+     * Write reverse complement of k-mer stored in {@code words[offset, offset + count)} to {@code reverse}.
+     * <p>
+     * A packed k-mer fitting into one word is reversed by a couple of bit operations.
+     *
+     * @param words   Storage of k-mer.
+     * @param offset  Index of the first word of k-mer.
+     * @param count   Number of words of k-mer.
+     * @param length  Number of symbols in k-mer.
+     * @param packed  Whether k-mer stores nucleotides.
+     * @param reverse Destination, its first {@code count} words are written.
+     */
+    static void reverseComplement(final long[] words, final int offset, final int count,
+                                  final int length, final boolean packed, final long[] reverse) {
+        if (packed && count == 1) {
+            final long reversed = Long.reverse(~words[offset]);
+            final long swapped = ((reversed >>> 1) & PAIRS) | ((reversed & PAIRS) << 1);
+            reverse[0] = swapped >>> (Long.SIZE - length * PACKED_BITS);
+            return;
+        }
+        final int bits = bits(packed);
+        Arrays.fill(reverse, 0, count, 0);
+        for (int i = length - 1; i >= 0; i--) {
+            final long symbol = symbol(words, offset, count, length, bits, i);
+            shift(reverse, 0, count, length, bits, packed ? 3 - symbol : complement((char) symbol));
+        }
+    }
+
+    /**
+     * Compare k-mers of the same length and encoding.
+     *
+     * @param left        Storage of the first k-mer.
+     * @param leftOffset  Index of the first word of the first k-mer.
+     * @param right       Storage of the second k-mer.
+     * @param rightOffset Index of the first word of the second k-mer.
+     * @param count       Number of words of k-mers.
+     * @return Negative, zero or positive number as the first k-mer is less than, equal or greater than the second.
+     */
+    static int compare(final long[] left, final int leftOffset, final long[] right, final int rightOffset,
+                       final int count) {
+        for (int i = 0; i < count; i++) {
+            final int compared = Long.compareUnsigned(left[leftOffset + i], right[rightOffset + i]);
+            if (compared != 0) {
+                return compared;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Append all symbols of k-mer stored in {@code words[offset, offset + count)} to builder.
+     *
+     * @param builder Destination.
+     * @param words   Storage of k-mer.
+     * @param offset  Index of the first word of k-mer.
+     * @param count   Number of words of k-mer.
+     * @param length  Number of symbols in k-mer.
+     * @param packed  Whether k-mer stores nucleotides.
+     * @return The same builder.
+     */
+    static StringBuilder append(final StringBuilder builder, final long[] words, final int offset, final int count,
+                                final int length, final boolean packed) {
+        for (int i = 0; i < length; i++) {
+            builder.append(charAt(words, offset, count, length, packed, i));
+        }
+        return builder;
+    }
+
+    /**
+     * Hash k-mer stored in {@code words[offset, offset + count)}.
+     *
+     * @param words  Storage of k-mer.
+     * @param offset Index of the first word of k-mer.
+     * @param count  Number of words of k-mer.
+     * @param packed Whether k-mer stores nucleotides.
+     * @return Well mixed hash.
+     */
+    static int hash(final long[] words, final int offset, final int count, final boolean packed) {
+        long hash = packed ? GOLDEN : ~GOLDEN;
+        for (int i = offset; i < offset + count; i++) {
+            hash = (hash ^ words[i]) * GOLDEN;
+            hash ^= hash >>> 32;
+        }
+        hash *= GOLDEN;
+        return (int) (hash ^ (hash >>> 29));
+    }
+
+    /**
+     * Get number of symbols in k-mer.
+     *
+     * @return Length of k-mer.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Check if k-mer is stored with 2 bits per base.
+     *
+     * @return True if k-mer consists only of nucleotides.
+     */
+    public boolean packed() {
+        return packed;
+    }
+
+    /**
+     * Get symbol of k-mer.
+     *
+     * @param index Index of symbol.
+     * @return Symbol.
+     */
+    public char charAt(final int index) {
+        return charAt(words, 0, words.length, length, packed, index);
+    }
+
+    long[] words() {
+        return words;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final Kmer that = (Kmer) o;
+        return length == that.length && packed == that.packed && Arrays.equals(words, that.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash(words, 0, words.length, packed);
+    }
+
+    @Override
+    public String toString() {
+        return append(new StringBuilder(length), words, 0, words.length, length, packed).toString();
+    }
+
+    /**
+     * Adapter of nucleotide windows of a single sequence to k-mers.
+     * <p>
+     * Windows skipped by {@link Strings#windows(CharSequence, int, WindowConsumer)} contain other symbols,
+     * they are passed to consumer as raw k-mers in between, so k-mers come in order of their positions.
+     */
+    private static final class Windows implements WindowConsumer {
+        private final CharSequence sequence;
+        private final int length;
+        private final long[] window;
+        private final long[] raw;
+        private final KmerConsumer consumer;
+        private int next;
+
+        private Windows(final CharSequence sequence, final int length,
+                        final long[] window, final long[] raw, final KmerConsumer consumer) {
+            this.sequence = sequence;
+            this.length = length;
+            this.window = window;
+            this.raw = raw;
+            this.consumer = consumer;
+        }
+
+        private void run() {
+            Strings.windows(sequence, length, this);
+            raw(sequence.length() - length + 1);
+        }
+
+        @Override
+        public void accept(final int start, final long forward, final long reverse) {
+            raw(start);
+            window[0] = forward;
+            consumer.accept(window, 0, true);
+            next = start + 1;
+        }
+
+        private void raw(final int end) {
+            for (; next < end; next++) {
+                encode(sequence, next, next + length, false, raw, 0);
+                consumer.accept(raw, 0, false);
+            }
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.graph;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash table of k-mers with the same length.
+ * <p>
+ * Every inserted k-mer gets a dense id starting from 0, so any per-node data can be kept in
+ * primitive arrays indexed by id. Keys are stored in {@code long} arrays: nucleotide k-mers with
+ * 2 bits per base, all the others with 16 bits per symbol. Slots keep {@code id + 1} with linear
+ * probing, so the whole table is a handful of primitive arrays without per-entry objects.
+ */
+final class KmerTable implements Sequences {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int length;
+    private final int packedWords;
+    private final int rawWords;
+
+    private long[] packedKeys;
+    private int packedCount;
+    private long[] rawKeys;
+    private int rawCount;
+    private int[] locations;
+    private int[] slots;
+    private int size;
+
+    /**
+     * Constructor - create empty table.
+     *
+     * @param length Length of stored k-mers.
+     */
+    KmerTable(final int length) {
+        this.length = length;
+        this.packedWords = Kmer.words(length, Kmer.PACKED_BITS);
+        this.rawWords = Kmer.words(length, Kmer.RAW_BITS);
+        this.packedKeys = new long[INITIAL_CAPACITY * packedWords];
+        this.rawKeys = new long[0];
+        this.locations = new int[INITIAL_CAPACITY];
+        this.slots = new int[INITIAL_CAPACITY * 2];
+    }
+
+    /**
+     * Get length of stored k-mers.
+     *
+     * @return Number of symbols.
+     */
+    int length() {
+        return length;
+    }
+
+    /**
+     * Get number of words used by one key.
+     *
+     * @param packed Whether key stores nucleotides.
+     * @return Number of words.
+     */
+    int words(final boolean packed) {
+        return packed ? packedWords : rawWords;
+    }
+
+    /**
+     * Find id of k-mer.
+     *
+     * @param key    Storage of k-mer.
+     * @param offset Index of the first word of k-mer.
+     * @param packed Whether k-mer stores nucleotides.
+     * @return Id of k-mer or -1 if it is absent.
+     */
+    int find(final long[] key, final int offset, final boolean packed) {
+        final int mask = slots.length - 1;
+        int slot = Kmer.hash(key, offset, words(packed), packed) & mask;
+        while (slots[slot] != 0) {
+            final int id = slots[slot] - 1;
+            if (matches(id, key, offset, packed)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Find id of k-mer inserting it if it is absent.
+     *
+     * @param key    Storage of k-mer.
+     * @param offset Index of the first word of k-mer.
+     * @param packed Whether k-mer stores nucleotides.
+     * @return Id of k-mer.
+     */
+    int add(final long[] key, final int offset, final boolean packed) {
+        final int mask = slots.length - 1;
+        int slot = Kmer.hash(key, offset, words(packed), packed) & mask;
+        while (slots[slot] != 0) {
+            final int id = slots[slot] - 1;
+            if (matches(id, key, offset, packed)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        final int id = store(key, offset, packed);
+        slots[slot] = id + 1;
+        if (size * 3 > slots.length * 2) {
+            rehash(slots.length * 2);
+        }
+        return id;
+    }
+
+    /**
+     * Check whether k-mer is stored with 2 bits per base.
+     *
+     * @param id Id of k-mer.
+     * @return True if k-mer consists only of nucleotides.
+     */
+    boolean packed(final int id) {
+        return locations[id] >= 0;
+    }
+
+    /**
+     * Copy key of k-mer.
+     *
+     * @param id     Id of k-mer.
+     * @param key    Destination.
+     * @param offset Index of the first word to write.
+     */
+    void key(final int id, final long[] key, final int offset) {
+        final int location = locations[id];
+        if (location >= 0) {
+            System.arraycopy(packedKeys, location * packedWords, key, offset, packedWords);
+        } else {
+            System.arraycopy(rawKeys, ~location * rawWords, key, offset, rawWords);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int length(final int id) {
+        return length;
+    }
+
+    @Override
+    public Kmer kmer(final int id) {
+        final boolean packed = packed(id);
+        final long[] key = new long[words(packed)];
+        key(id, key, 0);
+        return new Kmer(key, length, packed);
+    }
+
+    @Override
+    public char charAt(final int id, final int index) {
+        final int location = locations[id];
+        final boolean packed = location >= 0;
+        final int words = words(packed);
+        final int offset = (packed ? location : ~location) * words;
+        return Kmer.charAt(packed ? packedKeys : rawKeys, offset, words, length, packed, index);
+    }
+
+    @Override
+    public StringBuilder append(final StringBuilder builder, final int id, final int from) {
+        final int location = locations[id];
+        final boolean packed = location >= 0;
+        final long[] keys = packed ? packedKeys : rawKeys;
+        final int words = words(packed);
+        final int offset = (packed ? location : ~location) * words;
+        for (int i = from; i < length; i++) {
+            builder.append(Kmer.charAt(keys, offset, words, length, packed, i));
+        }
+        return builder;
+    }
+
+    private boolean matches(final int id, final long[] key, final int offset, final boolean packed) {
+        final int location = locations[id];
+        if ((location >= 0) != packed) {
+            return false;
+        }
+        final long[] keys = packed ? packedKeys : rawKeys;
+        final int words = words(packed);
+        final int start = (packed ? location : ~location) * words;
+        for (int i = 0; i < words; i++) {
+            if (keys[start + i] != key[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int store(final long[] key, final int offset, final boolean packed) {
+        if (size == locations.length) {
+            locations = Arrays.copyOf(locations, size * 2);
+        }
+        if (packed) {
+            if ((packedCount + 1) * packedWords > packedKeys.length) {
+                packedKeys = Arrays.copyOf(packedKeys, Math.max(packedKeys.length * 2, packedWords));
+            }
+            System.arraycopy(key, offset, packedKeys, packedCount * packedWords, packedWords);
+            locations[size] = packedCount++;
+        } else {
+            if ((rawCount + 1) * rawWords > rawKeys.length) {
+                rawKeys = Arrays.copyOf(rawKeys, Math.max(rawKeys.length * 2, INITIAL_CAPACITY * rawWords));
+            }
+            System.arraycopy(key, offset, rawKeys, rawCount * rawWords, rawWords);
+            locations[size] = ~rawCount++;
+        }
+        return size++;
+    }
+
+    private void rehash(final int capacity) {
+        final int[] rehashed = new int[capacity];
+        final int mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            final int location = locations[id];
+            final boolean packed = location >= 0;
+            final int words = words(packed);
+            final int offset = (packed ? location : ~location) * words;
+            int slot = Kmer.hash(packed ? packedKeys : rawKeys, offset, words, packed) & mask;
+            while (rehashed[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            rehashed[slot] = id + 1;
+        }
+        slots = rehashed;
+    }
+}
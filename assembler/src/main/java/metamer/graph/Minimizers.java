@@ -0,0 +1,159 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.graph;
+
+import metamer.utils.Strings;
+import metamer.utils.WindowConsumer;
+
+import java.util.Arrays;
+
+/**
+ * Minimizers of k-mers.
+ * <p>
+ * The minimizer of k-mer is the least hash of its m-mers, so consecutive k-mers mostly share it, and every
+ * k-mer of a read goes to the same partition as its neighbours. In canonical mode an m-mer is hashed
+ * together with its reverse complement, so a k-mer and its reverse complement have the same minimizer.
+ * M-mers with symbols other than nucleotides aren't hashed, k-mer without any nucleotide m-mer
+ * gets {@link #NONE}.
+ * <p>
+ * A maximal run of consecutive k-mers with the same minimizer is a super-k-mer. It holds n k-mers
+ * in n + k - 1 symbols instead of n * k, so super-k-mers are moved between partitions instead of k-mers.
+ */
+final class Minimizers {
+    static final long NONE = Long.MAX_VALUE;
+
+    private static final int M = 11;
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    private final int k;
+    private final int m;
+    private final boolean canonical;
+    private final WindowConsumer mmers = this::hash;
+    private long[] hashes = new long[0];
+    private int[] queue = new int[0];
+
+    /**
+     * Constructor - set lengths.
+     *
+     * @param k         Length of kmer.
+     * @param canonical Whether m-mers are merged with their reverse complements.
+     */
+    Minimizers(final int k, final boolean canonical) {
+        this.k = k;
+        this.m = Math.min(M, k);
+        this.canonical = canonical;
+    }
+
+    /**
+     * Pass every super-k-mer of the sequence with its minimizer to consumer.
+     * <p>
+     * Minimizers are found with a sliding window minimum, so the whole scan is linear.
+     * Consecutive super-k-mers overlap by k - 1 symbols, so every k-mer is passed once.
+     *
+     * @param sequence Sequence of symbols.
+     * @param consumer Receiver of super-k-mers.
+     */
+    void scan(final CharSequence sequence, final MinimizerConsumer consumer) {
+        final int count = hash(sequence);
+        final int window = k - m + 1;
+        int head = 0;
+        int tail = 0;
+        int start = 0;
+        long current = NONE;
+        for (int i = 0; i < count; i++) {
+            while (tail > head && hashes[queue[tail - 1]] > hashes[i]) {
+                tail--;
+            }
+            queue[tail++] = i;
+            final int from = i - window + 1;
+            if (from >= 0) {
+                while (queue[head] < from) {
+                    head++;
+                }
+                final long minimizer = hashes[queue[head]];
+                if (from > start && minimizer != current) {
+                    consumer.accept(start, from + k - 1, current);
+                    start = from;
+                }
+                current = minimizer;
+            }
+        }
+        if (count >= window) {
+            consumer.accept(start, sequence.length(), current);
+        }
+    }
+
+    /**
+     * Find the least hash of m-mers of the whole sequence.
+     *
+     * @param sequence Sequence of symbols.
+     * @return Hash of minimizer.
+     */
+    long minimizer(final CharSequence sequence) {
+        final int count = hash(sequence);
+        long minimizer = NONE;
+        for (int i = 0; i < count; i++) {
+            minimizer = Math.min(minimizer, hashes[i]);
+        }
+        return minimizer;
+    }
+
+    /**
+     * Hash every m-mer of the sequence into {@link #hashes}.
+     *
+     * @return Number of m-mers.
+     */
+    private int hash(final CharSequence sequence) {
+        final int count = sequence.length() - m + 1;
+        if (count <= 0) {
+            return 0;
+        }
+        if (hashes.length < count) {
+            hashes = Arrays.copyOf(hashes, Math.max(count, hashes.length * 2));
+            queue = new int[hashes.length];
+        }
+        Arrays.fill(hashes, 0, count, NONE);
+        Strings.windows(sequence, m, mmers);
+        return count;
+    }
+
+    private void hash(final int start, final long forward, final long reverse) {
+        hashes[start] = mix(canonical ? Math.min(forward, reverse) : forward);
+    }
+
+    /**
+     * Mix bits of value, so that minimizers are not biased to the lexicographically least m-mers.
+     *
+     * @param value Value to mix.
+     * @return Non-negative hash less than {@link #NONE}.
+     */
+    static long mix(final long value) {
+        long mixed = value * GOLDEN;
+        mixed ^= mixed >>> 32;
+        mixed *= GOLDEN;
+        mixed ^= mixed >>> 29;
+        return (mixed >>> 1) % NONE;
+    }
+}
@@ -36,7 +36,7 @@ import lombok.experimental.Accessors;
 @Accessors(fluent = true)
 @EqualsAndHashCode(exclude = {"nin", "nout"})
 public class Node {
-    public String kmer;
+    private final Kmer key;
 
     public int nin;
     public int nout;
@@ -47,8 +47,26 @@ public class Node {
      * @param kmer String with current kmer.
      */
     Node(final String kmer) {
-        this.kmer = kmer;
+        this(Kmer.of(kmer));
+    }
+
+    /**
+     * Constructor - initializing all fields.
+     *
+     * @param key Packed current kmer.
+     */
+    Node(final Kmer key) {
+        this.key = key;
         this.nin = 0;
         this.nout = 0;
     }
+
+    /**
+     * Get current kmer as a string.
+     *
+     * @return Unpacked kmer.
+     */
+    public String kmer() {
+        return key.toString();
     }
+}
@@ -0,0 +1,313 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.graph;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+/**
+ * De Bruijn graph construction spread over several threads.
+ * <p>
+ * Reads are cut into batches which are encoded by worker threads. Every edge is routed by the hash
+ * of its source (k - 1)-mer to one of the shards, each shard is a {@link GraphBuilder} guarded by its
+ * own lock, so workers rarely wait for each other. Edges are buffered per shard and applied in bulk.
+ * When all reads are processed, shards are merged into a single graph.
+ * <p>
+ * A parallel stream of reads is consumed by the worker threads themselves, so a splittable source
+ * is parsed in parallel as well.
+ * <p>
+ * If solid k-mers are assembled only, every shard prefilters edges it owns with its own Bloom filter.
+ * In canonical mode (k - 1)-mers are made canonical by worker threads, and an edge is routed by both
+ * of its (k - 1)-mers, so an edge and its twin from the opposite strand go to the same shard.
+ */
+final class ParallelGraphBuilder {
+    private static final int BATCH = 4096;
+    private static final int BUFFER = 1 << 14;
+    private static final int SHARDS_PER_THREAD = 4;
+    private static final long EDGE = 1;
+    private static final long FROM_PACKED = 2;
+    private static final long TO_PACKED = 4;
+    private static final long FROM_REVERSED = 8;
+    private static final long TO_REVERSED = 16;
+    private static final int SHARD_MIX = 0x9E3779B9;
+
+    private final int k;
+    private final int threads;
+    private final int minCount;
+    private final boolean canonical;
+    private final GraphBuilder[] shards;
+    private final Queue<Router> created = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<Router> routers = ThreadLocal.withInitial(this::router);
+
+    /**
+     * Constructor - create empty shards.
+     *
+     * @param k         Length of kmer.
+     * @param threads   Number of worker threads.
+     * @param minCount  Minimal number of times a k-mer is seen to be kept.
+     * @param canonical Whether k-mers are merged with their reverse complements.
+     */
+    ParallelGraphBuilder(final int k, final int threads, final int minCount, final boolean canonical) {
+        this.k = k;
+        this.threads = threads;
+        this.minCount = minCount;
+        this.canonical = canonical;
+        this.shards = new GraphBuilder[threads * SHARDS_PER_THREAD];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new GraphBuilder(k, minCount > 1, canonical);
+        }
+    }
+
+    /**
+     * Build graph from all reads.
+     * <p>
+     * At most two batches per thread are in flight, so the reads are consumed lazily. Finished batches
+     * are checked as new ones are submitted, so construction stops at the first failed batch.
+     * A parallel stream is traversed by the pool of worker threads instead.
+     * Every edge is counted by the shard of its source, so rare k-mers are dropped while shards are merged.
+     *
+     * @param reads Reads from input source.
+     * @return Graph with all reads.
+     */
+    Graph build(final Stream<? extends CharSequence> reads) {
+        if (reads.isParallel()) {
+            return buildParallel(reads);
+        }
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        final CompletionService<Void> tasks = new ExecutorCompletionService<>(pool);
+        final Semaphore inFlight = new Semaphore(threads * 2);
+        int pending = 0;
+        try {
+            final Iterator<? extends CharSequence> iterator = reads.iterator();
+            while (iterator.hasNext()) {
+                final List<CharSequence> batch = new ArrayList<>(BATCH);
+                while (iterator.hasNext() && batch.size() < BATCH) {
+                    batch.add(iterator.next());
+                }
+                inFlight.acquire();
+                tasks.submit(() -> {
+                    try {
+                        routers.get().route(batch);
+                    } finally {
+                        inFlight.release();
+                    }
+                }, null);
+                pending++;
+                for (Future<Void> done = tasks.poll(); done != null; done = tasks.poll()) {
+                    done.get();
+                    pending--;
+                }
+            }
+            for (; pending > 0; pending--) {
+                tasks.take().get();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Graph construction was interrupted", e);
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException("Graph construction failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return merge();
+    }
+
+    private Graph buildParallel(final Stream<? extends CharSequence> reads) {
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.submit(() -> reads.forEach(read -> routers.get().add(read))).get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Graph construction was interrupted", e);
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException("Graph construction failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        for (final Router router : created) {
+            router.flush();
+        }
+        return merge();
+    }
+
+    private Router router() {
+        final Router router = new Router();
+        created.add(router);
+        return router;
+    }
+
+    private int shard(final long[] key, final int offset, final int count, final boolean packed) {
+        return shard(Kmer.hash(key, offset, count, packed));
+    }
+
+    private int shard(final int hash) {
+        final long mixed = (hash * SHARD_MIX) & 0xFFFFFFFFL;
+        return (int) ((mixed * shards.length) >>> Integer.SIZE);
+    }
+
+    private Graph merge() {
+        final GraphBuilder graph = new GraphBuilder(k, false, canonical);
+        for (final GraphBuilder shard : shards) {
+            shard.copy(graph, minCount);
+        }
+        return graph.build();
+    }
+
+    /**
+     * Encoder of batches owned by a worker thread, buffers edges for every shard.
+     * <p>
+     * Record of the buffer is a header followed by the source key, if header has {@link #EDGE} bit,
+     * and the target key. Reads consisting of a single (k - 1)-mer produce records without source.
+     */
+    private final class Router {
+        private final long[] window;
+        private final long[] raw;
+        private final long[] reverse;
+        private final long[] previous;
+        private final long[][] buffers = new long[shards.length][];
+        private final int[] sizes = new int[shards.length];
+        private final KmerConsumer consumer = this::accept;
+        private boolean previousPacked;
+        private boolean previousReversed;
+        private int nodes;
+
+        private Router() {
+            final KmerTable kmers = shards[0].kmers();
+            this.window = new long[kmers.words(true)];
+            this.raw = new long[kmers.words(false)];
+            this.reverse = new long[raw.length];
+            this.previous = new long[raw.length];
+        }
+
+        private void route(final List<CharSequence> batch) {
+            for (final CharSequence read : batch) {
+                add(read);
+            }
+            flush();
+        }
+
+        private void add(final CharSequence read) {
+            nodes = 0;
+            Kmer.windows(read, k - 1, window, raw, consumer);
+            if (nodes == 1) {
+                final int count = words(previousPacked);
+                final int shard = shard(previous, 0, count, previousPacked);
+                final long header = previousPacked ? TO_PACKED : 0;
+                final int at = reserve(shard, 1 + count);
+                buffers[shard][at] = header;
+                System.arraycopy(previous, 0, buffers[shard], at + 1, count);
+            }
+        }
+
+        private void flush() {
+            for (int shard = 0; shard < shards.length; shard++) {
+                flush(shard);
+            }
+        }
+
+        private void accept(final long[] key, final int offset, final boolean packed) {
+            if (canonical && shards[0].reverse(key, offset, packed, reverse)) {
+                accept(reverse, 0, packed, true);
+            } else {
+                accept(key, offset, packed, false);
+            }
+        }
+
+        private void accept(final long[] key, final int offset, final boolean packed, final boolean reversed) {
+            final int count = words(packed);
+            if (nodes > 0) {
+                final int previousCount = words(previousPacked);
+                final int hash = Kmer.hash(previous, 0, previousCount, previousPacked);
+                final int shard = shard(canonical ? hash + Kmer.hash(key, offset, count, packed) : hash);
+                final long header = EDGE | (previousPacked ? FROM_PACKED : 0) | (packed ? TO_PACKED : 0)
+                        | (previousReversed ? FROM_REVERSED : 0) | (reversed ? TO_REVERSED : 0);
+                final int at = reserve(shard, 1 + previousCount + count);
+                final long[] buffer = buffers[shard];
+                buffer[at] = header;
+                System.arraycopy(previous, 0, buffer, at + 1, previousCount);
+                System.arraycopy(key, offset, buffer, at + 1 + previousCount, count);
+            }
+            System.arraycopy(key, offset, previous, 0, count);
+            previousPacked = packed;
+            previousReversed = reversed;
+            nodes++;
+        }
+
+        private int words(final boolean packed) {
+            return packed ? window.length : raw.length;
+        }
+
+        private int reserve(final int shard, final int length) {
+            if (buffers[shard] == null) {
+                buffers[shard] = new long[Math.max(BUFFER, length)];
+            } else if (sizes[shard] + length > buffers[shard].length) {
+                flush(shard);
+            }
+            final int at = sizes[shard];
+            sizes[shard] += length;
+            return at;
+        }
+
+        private void flush(final int shard) {
+            final long[] buffer = buffers[shard];
+            final int size = sizes[shard];
+            if (size == 0) {
+                return;
+            }
+            final GraphBuilder builder = shards[shard];
+            synchronized (builder) {
+                int at = 0;
+                while (at < size) {
+                    final long header = buffer[at++];
+                    final boolean toPacked = (header & TO_PACKED) != 0;
+                    if ((header & EDGE) != 0) {
+                        final boolean fromPacked = (header & FROM_PACKED) != 0;
+                        final boolean fromReversed = (header & FROM_REVERSED) != 0;
+                        final boolean toReversed = (header & TO_REVERSED) != 0;
+                        final int to = at + words(fromPacked);
+                        builder.edge(buffer, at, fromPacked, fromReversed, buffer, to, toPacked, toReversed);
+                        at = to;
+                    } else {
+                        builder.node(buffer, at, toPacked);
+                    }
+                    at += words(toPacked);
+                }
+            }
+            sizes[shard] = 0;
+        }
+    }
+}
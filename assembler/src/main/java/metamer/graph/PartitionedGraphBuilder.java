@@ -0,0 +1,382 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.graph;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * De Bruijn graph construction under a memory budget.
+ * <p>
+ * Reads are cut into super-k-mers, runs of k-mers sharing a minimizer, which are written to partition files
+ * on disk by the hash of their minimizer, so every k-mer is counted in a single partition, and a read takes
+ * only a few more symbols on disk than in memory. Then partitions are loaded one by one, their solid k-mers
+ * are merged into a single graph and rare ones are dropped with the partition, so only one partition
+ * per thread and the solid graph are kept in memory.
+ * <p>
+ * A partition which doesn't fit into the budget is split further by another hash of minimizers. K-mers with
+ * the same minimizer are never split, so a partition of a single minimizer is loaded as it is.
+ * In canonical mode a k-mer and its reverse complement have the same minimizer, so twins meet as well.
+ */
+final class PartitionedGraphBuilder {
+    private static final int PARTITIONS = 64;
+    private static final int BUFFER = 1 << 16;
+    private static final int MAX_LEVEL = 3;
+    private static final long BYTES_PER_KMER = 128;
+
+    private final int k;
+    private final int threads;
+    private final int minCount;
+    private final boolean canonical;
+    private final long capacity;
+    private final ThreadLocal<Minimizers> minimizers;
+
+    /**
+     * Constructor - set budget.
+     *
+     * @param k         Length of kmer.
+     * @param threads   Number of threads loading partitions.
+     * @param minCount  Minimal number of times a k-mer is seen to be kept.
+     * @param canonical Whether k-mers are merged with their reverse complements.
+     * @param maxMemory Number of bytes graph construction may take.
+     */
+    PartitionedGraphBuilder(
+            final int k,
+            final int threads,
+            final int minCount,
+            final boolean canonical,
+            final long maxMemory) {
+        this.k = k;
+        this.threads = Math.max(1, threads);
+        this.minCount = minCount;
+        this.canonical = canonical;
+        this.capacity = Math.max(1, maxMemory / (2L * this.threads * BYTES_PER_KMER));
+        this.minimizers = ThreadLocal.withInitial(() -> new Minimizers(k, canonical));
+    }
+
+    /**
+     * Build graph from all reads.
+     * <p>
+     * Partitions are kept in a temporary directory which is removed when the graph is built. If construction
+     * fails, an error of the removal is attached to the failure as suppressed. Otherwise the graph is returned
+     * and files which can't be removed are reported to the standard error stream.
+     *
+     * @param reads Reads from input source.
+     * @return Graph with all reads.
+     */
+    Graph build(final Stream<? extends CharSequence> reads) {
+        final Path directory;
+        try {
+            directory = Files.createTempDirectory("metamer");
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final Graph graph;
+        try {
+            graph = build(reads, directory);
+        } catch (final RuntimeException | Error e) {
+            try {
+                delete(directory);
+            } catch (final UncheckedIOException cleanup) {
+                e.addSuppressed(cleanup);
+            }
+            throw e;
+        }
+        try {
+            delete(directory);
+        } catch (final UncheckedIOException e) {
+            System.err.println(e.getMessage());
+        }
+        return graph;
+    }
+
+    private Graph build(final Stream<? extends CharSequence> reads, final Path directory) {
+        final Partitions partitions = new Partitions(directory, "", PARTITIONS);
+        try {
+            split(reads, partitions);
+        } finally {
+            try {
+                partitions.close();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return merge(partitions);
+    }
+
+    private void split(final Stream<? extends CharSequence> reads, final Partitions partitions) {
+        final Queue<Splitter> created = new ConcurrentLinkedQueue<>();
+        final ThreadLocal<Splitter> splitters = ThreadLocal.withInitial(() -> {
+            final Splitter splitter = new Splitter(partitions, 0);
+            created.add(splitter);
+            return splitter;
+        });
+        if (reads.isParallel()) {
+            final ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                pool.submit(() -> reads.forEach(read -> splitters.get().add(read))).get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Graph construction was interrupted", e);
+            } catch (final ExecutionException e) {
+                throw new IllegalStateException("Graph construction failed", e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+        } else {
+            reads.forEach(read -> splitters.get().add(read));
+        }
+        for (final Splitter splitter : created) {
+            splitter.flush();
+        }
+    }
+
+    private Graph merge(final Partitions partitions) {
+        final GraphBuilder graph = new GraphBuilder(k, false, canonical);
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        final List<Future<?>> tasks = new ArrayList<>();
+        try {
+            for (int partition = 0; partition < partitions.size(); partition++) {
+                final int index = partition;
+                tasks.add(pool.submit(() -> load(partitions, index, graph, 1)));
+            }
+            for (final Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Graph construction was interrupted", e);
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException("Graph construction failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return graph.build();
+    }
+
+    /**
+     * Merge solid k-mers of the partition into the graph, split the partition if it doesn't fit.
+     */
+    private void load(final Partitions partitions, final int partition, final GraphBuilder graph, final int level) {
+        final long kmers = partitions.count(partition);
+        if (kmers == 0) {
+            return;
+        }
+        final Path path = partitions.path(partition);
+        try {
+            if (kmers > capacity && level <= MAX_LEVEL) {
+                final int size = (int) Math.min(PARTITIONS, (kmers + capacity - 1) / capacity);
+                final Partitions parts = new Partitions(path.getParent(), path.getFileName() + "-", size);
+                final Splitter splitter = new Splitter(parts, level);
+                try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                    reader.lines().forEach(splitter::add);
+                    splitter.flush();
+                } finally {
+                    parts.close();
+                }
+                Files.delete(path);
+                for (int part = 0; part < parts.size(); part++) {
+                    load(parts, part, graph, parts.count(part) == kmers ? MAX_LEVEL + 1 : level + 1);
+                }
+                return;
+            }
+            final GraphBuilder builder = new GraphBuilder(k, minCount > 1, canonical);
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                reader.lines().forEach(builder::add);
+            }
+            Files.delete(path);
+            synchronized (graph) {
+                builder.copy(graph, minCount);
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Remove directory with all its files, every file is tried even if some of them can't be removed.
+     */
+    private static void delete(final Path directory) {
+        final List<Path> paths;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            paths = walk.sorted(Comparator.reverseOrder()).collect(toList());
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Can't remove " + directory, e);
+        }
+        final List<IOException> failures = new ArrayList<>();
+        for (final Path path : paths) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (final IOException e) {
+                failures.add(e);
+            }
+        }
+        if (!failures.isEmpty()) {
+            final UncheckedIOException error = new UncheckedIOException(
+                    "Can't remove " + failures.size() + " partition files in " + directory, failures.get(0));
+            failures.stream().skip(1).forEach(error::addSuppressed);
+            throw error;
+        }
+    }
+
+    /**
+     * Set of partition files open for writing, with number of k-mers written to each of them.
+     * <p>
+     * Files are created on the first write, so empty partitions take no place on disk.
+     */
+    private static final class Partitions {
+        private final Path[] paths;
+        private final Writer[] writers;
+        private final AtomicLongArray counts;
+
+        private Partitions(final Path directory, final String prefix, final int size) {
+            this.paths = new Path[size];
+            this.writers = new Writer[size];
+            this.counts = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++) {
+                paths[i] = directory.resolve(prefix + i);
+            }
+        }
+
+        private int size() {
+            return paths.length;
+        }
+
+        private Path path(final int partition) {
+            return paths[partition];
+        }
+
+        private long count(final int partition) {
+            return counts.get(partition);
+        }
+
+        private void write(final int partition, final StringBuilder lines, final int kmers) {
+            try {
+                synchronized (paths[partition]) {
+                    if (writers[partition] == null) {
+                        writers[partition] = Files.newBufferedWriter(paths[partition], StandardCharsets.UTF_8);
+                    }
+                    writers[partition].append(lines);
+                }
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            counts.addAndGet(partition, kmers);
+        }
+
+        private void close() throws IOException {
+            for (final Writer writer : writers) {
+                if (writer != null) {
+                    writer.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Writer of super-k-mers owned by a single thread, buffers lines for every partition.
+     * <p>
+     * Every super-k-mer is written as a line of its own. A read of a single (k - 1)-mer is written as it is,
+     * so the node is kept in the graph.
+     */
+    private final class Splitter {
+        private final Partitions partitions;
+        private final long seed;
+        private final StringBuilder[] buffers;
+        private final int[] kmers;
+        private CharSequence read;
+
+        private Splitter(final Partitions partitions, final int level) {
+            this.partitions = partitions;
+            this.seed = level;
+            this.buffers = new StringBuilder[partitions.size()];
+            this.kmers = new int[partitions.size()];
+        }
+
+        private void add(final CharSequence read) {
+            final Minimizers minimizers = PartitionedGraphBuilder.this.minimizers.get();
+            if (read.length() == k - 1) {
+                write(partition(minimizers.minimizer(read)), read, 0, read.length());
+            } else if (read.length() >= k) {
+                this.read = read;
+                minimizers.scan(read, this::accept);
+            }
+        }
+
+        private void accept(final int from, final int to, final long minimizer) {
+            write(partition(minimizer), read, from, to);
+        }
+
+        private int partition(final long minimizer) {
+            final long hash = seed == 0 ? minimizer : Minimizers.mix(minimizer ^ seed);
+            return (int) (hash % buffers.length);
+        }
+
+        private void write(final int partition, final CharSequence sequence, final int from, final int to) {
+            if (buffers[partition] == null) {
+                buffers[partition] = new StringBuilder(BUFFER);
+            }
+            final StringBuilder buffer = buffers[partition].append(sequence, from, to).append('\n');
+            kmers[partition] += Math.max(1, to - from - k + 1);
+            if (buffer.length() >= BUFFER) {
+                flush(partition);
+            }
+        }
+
+        private void flush() {
+            for (int partition = 0; partition < buffers.length; partition++) {
+                flush(partition);
+            }
+        }
+
+        private void flush(final int partition) {
+            if (kmers[partition] > 0) {
+                partitions.write(partition, buffers[partition], kmers[partition]);
+                buffers[partition].setLength(0);
+                kmers[partition] = 0;
+            }
+        }
+    }
+}
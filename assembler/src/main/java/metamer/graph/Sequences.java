@@ -0,0 +1,72 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.graph;
+
+/**
+ * Storage of node sequences indexed by node id.
+ */
+interface Sequences {
+    /**
+     * Get number of stored sequences.
+     *
+     * @return Number of nodes.
+     */
+    int size();
+
+    /**
+     * Get length of sequence.
+     *
+     * @param id Node id.
+     * @return Number of symbols.
+     */
+    int length(int id);
+
+    /**
+     * Get sequence as packed k-mer.
+     *
+     * @param id Node id.
+     * @return Packed sequence.
+     */
+    Kmer kmer(int id);
+
+    /**
+     * Get symbol of sequence.
+     *
+     * @param id    Node id.
+     * @param index Index of symbol.
+     * @return Symbol.
+     */
+    char charAt(int id, int index);
+
+    /**
+     * Append symbols of sequence starting from {@code from} to builder.
+     *
+     * @param builder Destination.
+     * @param id      Node id.
+     * @param from    Index of the first symbol to append.
+     * @return The same builder.
+     */
+    StringBuilder append(StringBuilder builder, int id, int from);
+}
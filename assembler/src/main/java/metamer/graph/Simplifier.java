@@ -0,0 +1,267 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.graph;
+
+/**
+ * Removal of tips and bubbles left by sequencing errors in compacted graph.
+ * <p>
+ * Every round looks at every node once, so it is linear in the size of graph, and the rest of graph
+ * is compacted after the round, so new tips and bubbles appear as nodes of their own.
+ * In canonical graph a node and its opposite strand are removed together, so decisions on both strands
+ * are the same.
+ */
+final class Simplifier {
+    private static final int MAX_ROUNDS = 8;
+    private static final int TIP_LENGTH = 2;
+    private static final int BUBBLE_LENGTH = 3;
+    private static final int DIVERGENCE = 10;
+    private static final int MAX_DEPTH = 8;
+    private static final int MAX_VISITS = 64;
+
+    private Graph graph;
+    private Adjacency adjacency;
+    private Sequences sequences;
+    private boolean[] removed;
+    private final StringBuilder left = new StringBuilder();
+    private final StringBuilder right = new StringBuilder();
+    private int[] distances = new int[0];
+    private int branch;
+    private int visits;
+    private int count;
+
+    /**
+     * Constructor - set graph to simplify.
+     *
+     * @param graph Compacted graph.
+     */
+    Simplifier(final Graph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Remove tips and bubbles until there are none of them.
+     *
+     * @return Compacted graph without tips and bubbles.
+     */
+    Graph simplify() {
+        for (int round = 0; round < MAX_ROUNDS; round++) {
+            adjacency = graph.adjacency();
+            sequences = graph.sequences();
+            removed = new boolean[sequences.size()];
+            count = 0;
+            for (int id = 0; id < removed.length; id++) {
+                if (!removed[id] && !clipTip(id)) {
+                    popBubble(id);
+                }
+            }
+            if (count == 0) {
+                break;
+            }
+            graph = graph.remove(removed).optimizeGraph();
+        }
+        return graph;
+    }
+
+    /**
+     * Clip the node if it is a short dead end joined to a node with a better covered branch.
+     */
+    private boolean clipTip(final int id) {
+        final boolean start = adjacency.nin(id) == 0 && adjacency.nout(id) == 1;
+        final boolean end = adjacency.nout(id) == 0 && adjacency.nin(id) == 1;
+        if (!start && !end || sequences.length(id) >= TIP_LENGTH * graph.k()) {
+            return false;
+        }
+        final int edge = start ? adjacency.firstOut(id) : adjacency.firstIn(id);
+        final int junction = start ? adjacency.target(edge) : adjacency.source(edge);
+        if (junction == id || sameUnitig(junction, id)) {
+            return false;
+        }
+        final long coverage = ((long) graph.coverage(id) * graph.kmers(id) + adjacency.count(edge))
+                / (graph.kmers(id) + 1);
+        int sibling = start ? adjacency.firstIn(junction) : adjacency.firstOut(junction);
+        for (; sibling != Adjacency.NONE; sibling = start ? adjacency.nextIn(sibling) : adjacency.nextOut(sibling)) {
+            final int other = start ? adjacency.source(sibling) : adjacency.target(sibling);
+            if (sibling != edge && !removed[other] && adjacency.count(sibling) >= coverage) {
+                remove(id);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Pop the node if it is a short path of a bubble and another path of the bubble is better covered.
+     * <p>
+     * Other paths between the same nodes are looked for with a depth first search bounded by the number
+     * of nodes and by the length of the path.
+     */
+    private void popBubble(final int id) {
+        if (adjacency.nin(id) != 1 || adjacency.nout(id) != 1 || sequences.length(id) > BUBBLE_LENGTH * graph.k()) {
+            return;
+        }
+        final int start = adjacency.source(adjacency.firstIn(id));
+        final int end = adjacency.target(adjacency.firstOut(id));
+        if (start == id || end == id || sameUnitig(id, start) || sameUnitig(id, end)) {
+            return;
+        }
+        branch = id;
+        visits = 0;
+        left.setLength(0);
+        sequences.append(left, id, 0);
+        final int limit = left.length() + band(left.length());
+        for (int edge = adjacency.firstOut(start); edge != Adjacency.NONE; edge = adjacency.nextOut(edge)) {
+            final int next = adjacency.target(edge);
+            if (next != id && next != end && !removed[next] && !sameUnitig(next, id)
+                    && sequences.length(next) <= limit) {
+                right.setLength(0);
+                sequences.append(right, next, 0);
+                final long total = adjacency.count(edge) + (long) graph.coverage(next) * graph.kmers(next);
+                if (search(next, end, 1, total, 1 + graph.kmers(next), limit)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Extend the path which is spelled in {@link #right} until it reaches the end of bubble.
+     *
+     * @param current Last node of the path.
+     * @param end     Node where the bubble ends.
+     * @param depth   Number of nodes in the path.
+     * @param total   Sum of counts of k-mers of the path.
+     * @param counted Number of k-mers of the path.
+     * @param limit   Maximal length of sequence of the path.
+     * @return Whether the bubble was found.
+     */
+    private boolean search(
+            final int current,
+            final int end,
+            final int depth,
+            final long total,
+            final long counted,
+            final int limit) {
+        if (++visits > MAX_VISITS) {
+            return false;
+        }
+        final int length = right.length();
+        for (int edge = adjacency.firstOut(current); edge != Adjacency.NONE; edge = adjacency.nextOut(edge)) {
+            final int next = adjacency.target(edge);
+            if (next == end) {
+                if (isSimilar()) {
+                    popWorse((total + adjacency.count(edge)) / (counted + 1), depth == 1 ? current : Adjacency.NONE);
+                    return true;
+                }
+            } else if (depth < MAX_DEPTH && next != branch && !removed[next] && !sameUnitig(next, branch)
+                    && length + sequences.length(next) - graph.k() + 2 <= limit) {
+                sequences.append(right, next, graph.k() - 2);
+                final long sum = total + adjacency.count(edge) + (long) graph.coverage(next) * graph.kmers(next);
+                final boolean found = search(next, end, depth + 1, sum, counted + 1 + graph.kmers(next), limit);
+                right.setLength(length);
+                if (found) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Remove the less covered path of bubble, the other path is removed only if it is a single node.
+     */
+    private void popWorse(final long coverage, final int other) {
+        final long branchCoverage = coverage(branch);
+        if (branchCoverage < coverage) {
+            remove(branch);
+        } else if (other != Adjacency.NONE && adjacency.nin(other) == 1 && adjacency.nout(other) == 1) {
+            remove(branchCoverage > coverage || unitig(branch) < unitig(other) ? other : branch);
+        }
+    }
+
+    private long coverage(final int id) {
+        final int in = adjacency.count(adjacency.firstIn(id));
+        final int out = adjacency.count(adjacency.firstOut(id));
+        return ((long) graph.coverage(id) * graph.kmers(id) + in + out) / (graph.kmers(id) + 2);
+    }
+
+    private static int band(final int length) {
+        return Math.max(1, length / DIVERGENCE);
+    }
+
+    /**
+     * Check whether {@link #left} and {@link #right} differ in a few symbols only, with a banded edit distance.
+     */
+    private boolean isSimilar() {
+        final int band = band(Math.max(left.length(), right.length()));
+        if (Math.abs(left.length() - right.length()) > band) {
+            return false;
+        }
+        if (distances.length < 2 * (right.length() + 1)) {
+            distances = new int[2 * (right.length() + 1)];
+        }
+        final int width = right.length() + 1;
+        final int inf = band + 1;
+        for (int j = 0; j < width; j++) {
+            distances[j] = Math.min(j, inf);
+        }
+        for (int i = 1; i <= left.length(); i++) {
+            final int previous = ((i - 1) & 1) * width;
+            final int current = (i & 1) * width;
+            distances[current] = Math.min(i, inf);
+            int best = distances[current];
+            for (int j = 1; j < width; j++) {
+                if (Math.abs(i - j) > band) {
+                    distances[current + j] = inf;
+                    continue;
+                }
+                final int mismatch = left.charAt(i - 1) == right.charAt(j - 1) ? 0 : 1;
+                final int substitution = distances[previous + j - 1] + mismatch;
+                final int gap = Math.min(distances[previous + j], distances[current + j - 1]) + 1;
+                distances[current + j] = Math.min(inf, Math.min(substitution, gap));
+                best = Math.min(best, distances[current + j]);
+            }
+            if (best > band) {
+                return false;
+            }
+        }
+        return distances[(left.length() & 1) * width + right.length()] <= band;
+    }
+
+    private void remove(final int id) {
+        count++;
+        removed[id] = true;
+        if (graph.canonical()) {
+            removed[graph.strands().opposite(id)] = true;
+        }
+    }
+
+    private boolean sameUnitig(final int id, final int other) {
+        return unitig(id) == unitig(other);
+    }
+
+    private int unitig(final int id) {
+        return graph.canonical() ? id >> 1 : id;
+    }
+}
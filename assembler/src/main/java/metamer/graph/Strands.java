@@ -0,0 +1,109 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.graph;
+
+/**
+ * Both strands of sequences kept once.
+ * <p>
+ * Sequence with id {@code n} of the underlying storage is seen as two nodes: {@code 2 * n} is the sequence
+ * itself and {@code 2 * n + 1} is its reverse complement, so the opposite strand of node {@code id}
+ * is {@code id ^ 1}. Sequence equal to its reverse complement is the only node {@code 2 * n} on both strands,
+ * then node {@code 2 * n + 1} is never used.
+ */
+final class Strands implements Sequences {
+    private final Sequences forward;
+
+    /**
+     * Constructor - create view on both strands.
+     *
+     * @param forward Storage of sequences.
+     */
+    Strands(final Sequences forward) {
+        this.forward = forward;
+    }
+
+    /**
+     * Check whether sequence is equal to its reverse complement.
+     *
+     * @param id Node id.
+     * @return True if sequence is the same on both strands.
+     */
+    boolean palindrome(final int id) {
+        final int length = length(id);
+        for (int i = 0; i <= (length - 1) / 2; i++) {
+            if (forward.charAt(id >> 1, i) != Kmer.complement(forward.charAt(id >> 1, length - 1 - i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get node of the same sequence on the opposite strand.
+     *
+     * @param id Node id.
+     * @return Id of reverse complement node.
+     */
+    int opposite(final int id) {
+        return palindrome(id) ? id & ~1 : id ^ 1;
+    }
+
+    @Override
+    public int size() {
+        return forward.size() * 2;
+    }
+
+    @Override
+    public int length(final int id) {
+        return forward.length(id >> 1);
+    }
+
+    @Override
+    public Kmer kmer(final int id) {
+        if ((id & 1) == 0) {
+            return forward.kmer(id >> 1);
+        }
+        return Kmer.of(append(new StringBuilder(length(id)), id, 0));
+    }
+
+    @Override
+    public char charAt(final int id, final int index) {
+        if ((id & 1) == 0) {
+            return forward.charAt(id >> 1, index);
+        }
+        return Kmer.complement(forward.charAt(id >> 1, length(id) - 1 - index));
+    }
+
+    @Override
+    public StringBuilder append(final StringBuilder builder, final int id, final int from) {
+        if ((id & 1) == 0) {
+            return forward.append(builder, id >> 1, from);
+        }
+        for (int i = from; i < length(id); i++) {
+            builder.append(charAt(id, i));
+        }
+        return builder;
+    }
+}
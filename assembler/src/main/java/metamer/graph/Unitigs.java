@@ -0,0 +1,104 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.graph;
+
+import java.util.Arrays;
+
+/**
+ * Storage of sequences with arbitrary length kept one after another in a single buffer.
+ */
+final class Unitigs implements Sequences {
+    private final StringBuilder buffer;
+    private int[] offsets;
+    private int size;
+
+    /**
+     * Constructor - create empty storage.
+     */
+    Unitigs() {
+        this.buffer = new StringBuilder();
+        this.offsets = new int[16];
+    }
+
+    /**
+     * Add sequence to the storage.
+     *
+     * @param sequence Sequence of symbols.
+     * @return Id of added sequence.
+     */
+    int add(final CharSequence sequence) {
+        buffer.append(sequence);
+        return close();
+    }
+
+    /**
+     * Get buffer to append symbols of the sequence which is being built.
+     * <p>
+     * The sequence is finished with {@link #close()}.
+     *
+     * @return Buffer with all sequences.
+     */
+    StringBuilder open() {
+        return buffer;
+    }
+
+    /**
+     * Finish the sequence which has been appended to {@link #open()} buffer.
+     *
+     * @return Id of added sequence.
+     */
+    int close() {
+        if (size + 2 > offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[++size] = buffer.length();
+        return size - 1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int length(final int id) {
+        return offsets[id + 1] - offsets[id];
+    }
+
+    @Override
+    public Kmer kmer(final int id) {
+        return Kmer.of(buffer, offsets[id], offsets[id + 1]);
+    }
+
+    @Override
+    public char charAt(final int id, final int index) {
+        return buffer.charAt(offsets[id] + index);
+    }
+
+    @Override
+    public StringBuilder append(final StringBuilder builder, final int id, final int from) {
+        return builder.append(buffer, offsets[id] + from, offsets[id + 1]);
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Stream of BGZF file decompressed by a pool of threads.
+ * <p>
+ * Blocks are read one by one and inflated by worker threads, at most two blocks per thread are in flight.
+ * Decompressed blocks are handed over in the order of the file.
+ */
+final class BgzfInputStream extends InputStream {
+    private static final int HEADER = 12;
+    private static final int TRAILER = 8;
+    private static final int FLAGS = 3;
+    private static final int EXTRA = 4;
+    private static final int SUBFIELD = 4;
+
+    private final InputStream input;
+    private final ExecutorService pool;
+    private final Queue<Future<byte[]>> blocks = new ArrayDeque<>();
+    private final int inFlight;
+    private byte[] block = new byte[0];
+    private int position;
+    private boolean eof;
+
+    /**
+     * Constructor - start pool of workers.
+     *
+     * @param input   Compressed stream.
+     * @param threads Number of worker threads.
+     */
+    BgzfInputStream(final InputStream input, final int threads) {
+        this.input = input;
+        this.pool = Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable, "bgzf");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.inFlight = threads * 2;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return available() > 0 || fill() ? block[position++] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (available() == 0 && !fill()) {
+            return -1;
+        }
+        final int count = Math.min(length, available());
+        System.arraycopy(block, position, buffer, offset, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return block.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        pool.shutdownNow();
+        input.close();
+    }
+
+    private boolean fill() throws IOException {
+        while (available() == 0) {
+            while (!eof && blocks.size() < inFlight) {
+                final byte[] compressed = next();
+                if (compressed == null) {
+                    eof = true;
+                } else {
+                    blocks.add(pool.submit(() -> inflate(compressed)));
+                }
+            }
+            final Future<byte[]> next = blocks.poll();
+            if (next == null) {
+                return false;
+            }
+            try {
+                block = next.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Decompression was interrupted", e);
+            } catch (final ExecutionException e) {
+                throw e.getCause() instanceof IOException
+                        ? (IOException) e.getCause()
+                        : new IOException("Decompression failed", e.getCause());
+            }
+            position = 0;
+        }
+        return true;
+    }
+
+    private byte[] next() throws IOException {
+        final byte[] header = new byte[HEADER];
+        final int length = input.readNBytes(header, 0, HEADER);
+        if (length == 0) {
+            return null;
+        }
+        if (length < HEADER) {
+            throw new EOFException("Truncated BGZF block");
+        }
+        if ((header[0] & 0xFF) != 0x1F || (header[1] & 0xFF) != 0x8B || (header[FLAGS] & EXTRA) == 0) {
+            throw new ZipException("Not in BGZF format");
+        }
+        final byte[] extra = readFully(littleEndian(header, HEADER - 2, 2));
+        int size = -1;
+        for (int at = 0; at + SUBFIELD <= extra.length; at += SUBFIELD + littleEndian(extra, at + 2, 2)) {
+            if (extra[at] == 'B' && extra[at + 1] == 'C') {
+                size = littleEndian(extra, at + SUBFIELD, 2) + 1;
+            }
+        }
+        if (size < 0) {
+            throw new ZipException("Not in BGZF format");
+        }
+        return readFully(size - HEADER - extra.length);
+    }
+
+    private byte[] readFully(final int length) throws IOException {
+        if (length < 0) {
+            throw new ZipException("Invalid BGZF block size");
+        }
+        final byte[] bytes = new byte[length];
+        if (input.readNBytes(bytes, 0, length) < length) {
+            throw new EOFException("Truncated BGZF block");
+        }
+        return bytes;
+    }
+
+    private static byte[] inflate(final byte[] compressed) throws IOException {
+        final int data = compressed.length - TRAILER;
+        if (data < 0) {
+            throw new ZipException("Invalid BGZF block size");
+        }
+        final byte[] block = new byte[littleEndian(compressed, data + 4, 4)];
+        if (block.length == 0) {
+            return block;
+        }
+        final Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed, 0, data);
+            int at = 0;
+            while (!inflater.finished()) {
+                final int count = inflater.inflate(block, at, block.length - at);
+                if (count == 0 && !inflater.finished()) {
+                    throw new ZipException("Corrupt BGZF block");
+                }
+                at += count;
+            }
+            final CRC32 crc = new CRC32();
+            crc.update(block, 0, at);
+            if (at != block.length || (int) crc.getValue() != littleEndian(compressed, data, 4)) {
+                throw new ZipException("Corrupt BGZF block");
+            }
+        } catch (final DataFormatException e) {
+            throw new ZipException(e.getMessage());
+        } finally {
+            inflater.end();
+        }
+        return block;
+    }
+
+    private static int littleEndian(final byte[] bytes, final int offset, final int length) {
+        int value = 0;
+        for (int i = length - 1; i >= 0; i--) {
+            value = value << Byte.SIZE | bytes[offset + i] & 0xFF;
+        }
+        return value;
+    }
+}
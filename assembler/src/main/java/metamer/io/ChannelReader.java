@@ -0,0 +1,456 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.io;
+
+import io.vavr.control.Either;
+import metamer.fastq.FastQ;
+import metamer.fastq.Trimmer;
+import metamer.io.exception.InvalidRecord;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Class for reading sequences from file on raw bytes.
+ * <p>
+ * The file is read through {@link FileChannel} by large windows. Record boundaries are found on bytes
+ * and sequences are handed over as {@link ByteSequence views} of a window, so neither lines nor records
+ * are decoded into strings. A fasta sequence which spans several lines is copied into a single array.
+ * Records which can't be handled on bytes, such as invalid ones or ones with non-ASCII symbols,
+ * are decoded and passed to the {@code parser}. Fastq records are expected to take exactly four lines,
+ * their sequences are trimmed by quality with the {@code trimmer}. When an invalid fastq record is skipped,
+ * reading resumes at the next record boundary after its first line, so a missing or an extra line
+ * costs only the record it belongs to.
+ * <p>
+ * The stream of sequences is splittable: the file is divided into byte ranges, each range is read from
+ * the first record boundary in it up to the last record which starts in it, so a parallel stream
+ * parses the file on several threads.
+ *
+ * @param <T> Type of Record: {@link metamer.fasta.Record} or {@link metamer.fastq.Record}.
+ */
+public class ChannelReader<T extends HasSequence> implements Reader {
+    private static final int WINDOW = 1 << 23;
+    private static final int FASTQ_LINES = 4;
+    private static final byte FASTA_PREFIX = '>';
+    private static final byte FASTQ_PREFIX = '@';
+    private static final byte SEPARATOR_PREFIX = '+';
+    private static final byte MIN_QUALITY = '!';
+    private static final byte MAX_QUALITY = '~';
+    private static final boolean[] NUCLEOTIDES = new boolean[256];
+
+    static {
+        for (final char nucleotide : "ACGTN".toCharArray()) {
+            NUCLEOTIDES[nucleotide] = true;
+        }
+    }
+
+    private final Path path;
+    private final Parser<T> parser;
+    private final ErrorPolicy policy;
+    private final Trimmer trimmer;
+    private final int window;
+
+    /**
+     * Constructor - initializing all fields.
+     *
+     * @param path   Path to file.
+     * @param parser Type of parser for correct choice for record type.
+     * @param policy Strategy for invalid records.
+     */
+    public ChannelReader(final Path path, final Parser<T> parser, final ErrorPolicy policy) {
+        this(path, parser, policy, Trimmer.none());
+    }
+
+    /**
+     * Constructor - initializing all fields.
+     *
+     * @param path    Path to file.
+     * @param parser  Type of parser for correct choice for record type.
+     * @param policy  Strategy for invalid records.
+     * @param trimmer Quality trimming of fastq reads.
+     */
+    public ChannelReader(final Path path, final Parser<T> parser, final ErrorPolicy policy, final Trimmer trimmer) {
+        this(path, parser, policy, trimmer, WINDOW);
+    }
+
+    ChannelReader(final Path path, final Parser<T> parser, final ErrorPolicy policy, final int window) {
+        this(path, parser, policy, Trimmer.none(), window);
+    }
+
+    ChannelReader(
+            final Path path,
+            final Parser<T> parser,
+            final ErrorPolicy policy,
+            final Trimmer trimmer,
+            final int window) {
+        this.path = path;
+        this.parser = parser;
+        this.policy = policy;
+        this.trimmer = trimmer;
+        this.window = window;
+    }
+
+    /**
+     * Function for reading sequences from file.
+     * <p>
+     * Sequences are read lazily while the stream is consumed, the file is closed with the stream.
+     * The stream is sequential, it may be turned into a parallel one to parse the file on several threads.
+     *
+     * @return Stream of sequences for further work.
+     */
+    public Stream<CharSequence> read() {
+        try {
+            final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            return StreamSupport.stream(new Records(channel, 0, channel.size()), false)
+                    .onClose(() -> close(channel));
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Can't read " + path, e);
+        }
+    }
+
+    /**
+     * Get current parser.
+     *
+     * Parser may be one of {@link metamer.fasta.Fasta} of {@link metamer.fastq.FastQ}
+     *
+     * @return Parser.
+     */
+    public Parser<T> parser() {
+        return this.parser;
+    }
+
+    /**
+     * Get sequence id.
+     *
+     * @return Id.
+     */
+    public String id() {
+        return this.path.toString();
+    }
+
+    private void close(final FileChannel channel) {
+        try {
+            channel.close();
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Can't close " + path, e);
+        }
+    }
+
+    /**
+     * Tokenizer of a byte range of the file.
+     * <p>
+     * Range owns records which start in it. Unless the range starts the file, it is synchronized
+     * on the first record boundary: a line starting with {@code >} for fasta, or a line starting with
+     * {@code @} followed by a {@code +} line two lines below and quality of the sequence length for fastq.
+     * The last record is read past the end of the range. Until the first record is read, the range
+     * may be split in halves.
+     * <p>
+     * Every window is a new array, since sequences handed over may still refer to the previous one.
+     * The unfinished record is carried over to the next window, which grows if the record doesn't fit.
+     */
+    private final class Records implements Spliterator<CharSequence> {
+        private final FileChannel channel;
+        private final boolean fastq = parser instanceof FastQ;
+        private final int[] ends = new int[FASTQ_LINES];
+        private final long to;
+        private long from;
+        private boolean started;
+        private boolean synced;
+        private long offset;
+        private long base;
+        private byte[] data = new byte[0];
+        private int limit;
+        private int position;
+        private boolean eof;
+
+        private Records(final FileChannel channel, final long from, final long to) {
+            this.channel = channel;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super CharSequence> action) {
+            if (!started) {
+                start();
+            }
+            final CharSequence sequence;
+            try {
+                sequence = advance();
+            } catch (final IOException e) {
+                throw new UncheckedIOException("Can't read " + path, e);
+            }
+            if (sequence == null) {
+                return false;
+            }
+            action.accept(sequence);
+            return true;
+        }
+
+        @Override
+        public Spliterator<CharSequence> trySplit() {
+            if (started || to - from < window * 2L) {
+                return null;
+            }
+            final long middle = from + (to - from) / 2;
+            final Records prefix = new Records(channel, from, middle);
+            from = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+
+        private void start() {
+            started = true;
+            synced = from == 0;
+            offset = synced ? 0 : from - 1;
+            base = offset;
+        }
+
+        private void fill() throws IOException {
+            final int remaining = limit - position;
+            final byte[] window = new byte[Math.max(ChannelReader.this.window, remaining * 2)];
+            System.arraycopy(data, position, window, 0, remaining);
+            final ByteBuffer buffer = ByteBuffer.wrap(window, remaining, window.length - remaining);
+            while (buffer.hasRemaining() && !eof) {
+                final int read = channel.read(buffer, offset);
+                eof = read < 0;
+                offset += Math.max(read, 0);
+            }
+            base += position;
+            data = window;
+            limit = buffer.position();
+            position = 0;
+        }
+
+        private CharSequence advance() throws IOException {
+            while (true) {
+                if (!synced) {
+                    final int boundary = boundary();
+                    if (boundary < 0) {
+                        if (eof) {
+                            return null;
+                        }
+                        fill();
+                        continue;
+                    }
+                    position = boundary;
+                    synced = true;
+                }
+                while (position < limit && isLineBreak(data[position])) {
+                    position++;
+                }
+                if (base + position >= to) {
+                    return null;
+                }
+                final int end = position == limit ? -1 : fastq ? fastqEnd(position) : fastaEnd(position);
+                if (end < 0) {
+                    if (eof) {
+                        return null;
+                    }
+                    fill();
+                    continue;
+                }
+                final int start = position;
+                position = end;
+                final CharSequence sequence = fastq ? fastq(start, end) : fasta(start, end);
+                if (sequence != null) {
+                    return sequence;
+                }
+            }
+        }
+
+        private int boundary() {
+            while (true) {
+                final int index = lineEnd(position) + 1;
+                if (index >= limit) {
+                    position = Math.min(index - 1, limit);
+                    return -1;
+                }
+                if (fastq && !eof && fastqEnd(index) < 0) {
+                    position = index - 1;
+                    return -1;
+                }
+                if (fastq ? isFastqStart(index) : data[index] == FASTA_PREFIX) {
+                    return index;
+                }
+                position = index;
+            }
+        }
+
+        private boolean isFastqStart(final int start) {
+            if (data[start] != FASTQ_PREFIX || fastqEnd(start) < 0) {
+                return false;
+            }
+            final int sequence = ends[0] + 1;
+            final int separator = ends[1] + 1;
+            final int quality = ends[2] + 1;
+            return separator < limit && data[separator] == SEPARATOR_PREFIX
+                    && trim(quality, ends[3]) - quality == trim(sequence, ends[1]) - sequence;
+        }
+
+        private int fastaEnd(final int start) {
+            int index = lineEnd(start);
+            while (index < limit) {
+                index++;
+                if (index < limit && data[index] == FASTA_PREFIX) {
+                    return index;
+                }
+                index = lineEnd(index);
+            }
+            return eof ? limit : -1;
+        }
+
+        private int fastqEnd(final int start) {
+            int index = start;
+            for (int line = 0; line < FASTQ_LINES; line++) {
+                index = lineEnd(index);
+                ends[line] = index;
+                if (index == limit) {
+                    if (!eof) {
+                        return -1;
+                    }
+                    for (int rest = line + 1; rest < FASTQ_LINES; rest++) {
+                        ends[rest] = limit;
+                    }
+                    return limit;
+                }
+                index++;
+            }
+            return index;
+        }
+
+        private CharSequence fasta(final int start, final int end) {
+            final int first = Math.min(lineEnd(start) + 1, end);
+            if (data[start] != FASTA_PREFIX || first == end) {
+                return parse(start, end);
+            }
+            int length = 0;
+            int lines = 0;
+            for (int index = first; index < end; index++) {
+                final byte symbol = data[index];
+                if (symbol < 0) {
+                    return parse(start, end);
+                }
+                if (symbol == '\n') {
+                    lines++;
+                } else if (symbol != '\r') {
+                    length++;
+                }
+            }
+            if (lines <= 1) {
+                return new ByteSequence(data, first, length);
+            }
+            final byte[] sequence = new byte[length];
+            int at = 0;
+            for (int index = first; index < end; index++) {
+                if (!isLineBreak(data[index])) {
+                    sequence[at++] = data[index];
+                }
+            }
+            return new ByteSequence(sequence, 0, length);
+        }
+
+        private CharSequence fastq(final int start, final int end) {
+            final int sequence = ends[0] + 1;
+            final int separator = ends[1] + 1;
+            final int quality = ends[2] + 1;
+            if (quality >= end || data[start] != FASTQ_PREFIX || data[separator] != SEPARATOR_PREFIX
+                    || trim(separator, ends[2]) - separator != 1) {
+                return parse(start, end);
+            }
+            final int length = trim(sequence, ends[1]) - sequence;
+            if (length == 0 || trim(quality, ends[3]) - quality != length) {
+                return parse(start, end);
+            }
+            boolean valid = true;
+            for (int i = 0; i < length; i++) {
+                final byte score = data[quality + i];
+                valid &= NUCLEOTIDES[data[sequence + i] & 0xFF] & score >= MIN_QUALITY & score <= MAX_QUALITY;
+            }
+            if (!valid) {
+                return parse(start, end);
+            }
+            return trimmer.trim(new ByteSequence(data, sequence, length), data, quality);
+        }
+
+        private CharSequence parse(final int start, final int end) {
+            final List<String> lines = new ArrayList<>();
+            int index = start;
+            while (index < end) {
+                final int lineEnd = Math.min(lineEnd(index), end);
+                lines.add(new String(data, index, trim(index, lineEnd) - index, StandardCharsets.UTF_8));
+                index = lineEnd + 1;
+            }
+            final Either<Exception, T> record = parser.read(lines);
+            if (record.isRight()) {
+                return trimmer.trim(record.get());
+            }
+            if (policy == ErrorPolicy.SKIP) {
+                if (fastq) {
+                    position = start;
+                    synced = false;
+                }
+                return null;
+            }
+            throw new InvalidRecord(record.getLeft());
+        }
+
+        private int lineEnd(final int from) {
+            int index = from;
+            while (index < limit && data[index] != '\n') {
+                index++;
+            }
+            return index;
+        }
+
+        private int trim(final int from, final int to) {
+            return to > from && data[to - 1] == '\r' ? to - 1 : to;
+        }
+    }
+
+    private static boolean isLineBreak(final byte symbol) {
+        return symbol == '\n' || symbol == '\r';
+    }
+}
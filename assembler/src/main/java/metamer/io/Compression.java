@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.io;
+
+import metamer.utils.Paths;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Compression of input file.
+ * <p>
+ * Compression is detected by magic bytes of the file. BGZF is gzip whose members are independent blocks
+ * of at most 64 KiB carrying their size in the {@code BC} extra subfield, so they may be decompressed
+ * in parallel.
+ */
+public enum Compression {
+    NONE, GZIP, BGZF;
+
+    private static final int BUFFER = 1 << 16;
+    private static final int HEADER = 16;
+    private static final int FLAGS = 3;
+    private static final int EXTRA = 4;
+    private static final List<String> EXTENSIONS = Arrays.asList("gz", "bgz", "bgzf");
+
+    /**
+     * Detect compression of file.
+     * <p>
+     * Extension of the file is a hint: a file named as gzip archive is read as gzip even if its
+     * magic bytes are broken, so it fails instead of being parsed as text.
+     *
+     * @param path Path to file.
+     * @return Compression of file.
+     * @throws IOException If file can't be read.
+     */
+    public static Compression of(final Path path) throws IOException {
+        final byte[] header = new byte[HEADER];
+        final int length;
+        try (InputStream input = Files.newInputStream(path)) {
+            length = input.readNBytes(header, 0, HEADER);
+        }
+        if (length >= 2 && (header[0] & 0xFF) == 0x1F && (header[1] & 0xFF) == 0x8B) {
+            final boolean blocked = length == HEADER && (header[FLAGS] & EXTRA) != 0
+                    && header[12] == 'B' && header[13] == 'C' && header[14] == 2 && header[15] == 0;
+            return blocked ? BGZF : GZIP;
+        }
+        return EXTENSIONS.contains(Paths.extension(path).toLowerCase()) ? GZIP : NONE;
+    }
+
+    /**
+     * Open file decompressing it in-stream.
+     *
+     * @param path    Path to file.
+     * @param threads Number of threads to decompress BGZF blocks with.
+     * @return Stream of decompressed bytes.
+     * @throws IOException If file can't be read.
+     */
+    public InputStream open(final Path path, final int threads) throws IOException {
+        final InputStream input = new BufferedInputStream(Files.newInputStream(path), BUFFER);
+        try {
+            switch (this) {
+                case GZIP:
+                    return new GZIPInputStream(input, BUFFER);
+                case BGZF:
+                    return threads > 1 ? new BgzfInputStream(input, threads) : new GZIPInputStream(input, BUFFER);
+                default:
+                    return input;
+            }
+        } catch (final IOException e) {
+            input.close();
+            throw e;
+        }
+    }
+}
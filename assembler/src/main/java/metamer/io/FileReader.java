@@ -24,37 +24,71 @@
  */
 package metamer.io;
 
-import io.vavr.Value;
-import io.vavr.collection.Seq;
-import io.vavr.control.Either;
+import lombok.AllArgsConstructor;
 
+import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 
 import java.util.stream.Stream;
 
 /**
  * Class for reading from file.
+ * <p>
+ * Gzip and BGZF files are decompressed in-stream, see {@link Compression}.
  *
  * @param <T> Type of Record: {@link metamer.fasta.Record} or {@link metamer.fastq.Record}.
  */
 @lombok.Value
+@AllArgsConstructor
 public class FileReader<T> implements Reader {
     private final Path path;
     private final Parser<T> parser;
+    private final ErrorPolicy policy;
+    private final int threads;
+
+    /**
+     * Constructor - initializing fields & stop at the first invalid record.
+     *
+     * @param path   Path to file.
+     * @param parser Type of parser for correct choice for record type.
+     */
+    public FileReader(final Path path, final Parser<T> parser) {
+        this(path, parser, ErrorPolicy.FAIL_FAST);
+    }
+
+    /**
+     * Constructor - initializing fields & decompress file on a single thread.
+     *
+     * @param path   Path to file.
+     * @param parser Type of parser for correct choice for record type.
+     * @param policy Strategy for invalid records.
+     */
+    public FileReader(final Path path, final Parser<T> parser, final ErrorPolicy policy) {
+        this(path, parser, policy, 1);
+    }
 
     /**
      * Function for reading from file.
+     * <p>
+     * Records are parsed lazily while the stream is consumed, the file is closed with the stream.
+     * Blocks of BGZF file are decompressed by {@code threads} worker threads.
      *
      * @return Stream of records for further work.
      */
     public Stream<T> read() {
-        try (final Stream<String> lines = Files.lines(path)) {
-            final Either<Exception, Seq<T>> value = this.parser().read(lines);
-            return value.map(Value::toJavaStream).getOrElse(Stream.empty());
+        try {
+            final InputStream input = Compression.of(path).open(path, threads);
+            final Stream<String> lines = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))
+                    .lines()
+                    .onClose(() -> close(input));
+            return this.parser().read(lines, policy).onClose(lines::close);
         } catch (final IOException e) {
-            throw new RuntimeException("Can't parse :(");
+            throw new UncheckedIOException("Can't read " + path, e);
         }
     }
 
@@ -78,6 +112,15 @@ public class FileReader<T> implements Reader {
         return this.parser;
     }
 
+    /**
+     * Get number of threads to decompress file with.
+     *
+     * @return Number of threads.
+     */
+    public int threads() {
+        return threads;
+    }
+
     /**
      * Get sequence id.
      *
@@ -86,4 +129,12 @@ public class FileReader<T> implements Reader {
     public String id() {
         return this.path.toString();
     }
+
+    private void close(final InputStream input) {
+        try {
+            input.close();
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Can't close " + path, e);
+        }
+    }
 }
@@ -24,10 +24,6 @@
  */
 package metamer.io;
 
-import io.vavr.Value;
-import io.vavr.collection.Seq;
-import io.vavr.control.Either;
-
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.util.stream.Stream;
@@ -40,27 +36,39 @@ import java.util.stream.Stream;
 public class StdInReader<T> implements Reader {
     private String id;
     private Parser<T> parser;
+    private ErrorPolicy policy;
 
     /**
-     * Constructor - initializing all fields.
+     * Constructor - initializing all fields & stop at the first invalid record.
      *
      * @param parser Type of parser for correct choice for record type.
      */
     public StdInReader(final Parser<T> parser) {
+        this(parser, ErrorPolicy.FAIL_FAST);
+    }
+
+    /**
+     * Constructor - initializing all fields.
+     *
+     * @param parser Type of parser for correct choice for record type.
+     * @param policy Strategy for invalid records.
+     */
+    public StdInReader(final Parser<T> parser, final ErrorPolicy policy) {
         this.id = System.in.toString();
         this.parser = parser;
+        this.policy = policy;
     }
 
     /**
      * Function for reading from stdin.
+     * <p>
+     * Records are parsed lazily while the stream is consumed.
      *
      * @return Stream of records for further work.
      */
     public Stream<T> read() {
-        try (final Stream<String> lines = new BufferedReader(new InputStreamReader(System.in)).lines()) {
-            final Either<Exception, Seq<T>> value = this.parser().read(lines);
-            return value.map(Value::toJavaStream).getOrElse(Stream.empty());
-        }
+        final Stream<String> lines = new BufferedReader(new InputStreamReader(System.in)).lines();
+        return this.parser().read(lines, policy);
     }
 
     /**
@@ -26,14 +26,20 @@ package metamer.fasta;
 
 import io.vavr.collection.Seq;
 import io.vavr.control.Either;
+import metamer.fasta.exception.InvalidNumberOfLines;
+import metamer.io.ErrorPolicy;
+import metamer.io.exception.InvalidRecord;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import java.util.stream.Stream;
 
+import static java.util.stream.Collectors.toList;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class FastaTest {
     @Test
@@ -51,4 +57,32 @@ public class FastaTest {
                 new Record("id2", "abc2")
         ));
     }
+
+    @Test
+    @DisplayName("invalid records should be skipped when records are streamed with skip policy")
+    void testSkipInvalidRecords() {
+        final Stream<Record> records = Fasta.parser().read(Stream.of(
+                ">id1",
+                "abc1",
+                ">id2",
+                ">id3",
+                "abc3"
+        ), ErrorPolicy.SKIP);
+        assertThat(records.collect(toList()), contains(
+                new Record("id1", "abc1"),
+                new Record("id3", "abc3")
+        ));
+    }
+
+    @Test
+    @DisplayName("exception should be thrown when records are streamed with fail fast policy")
+    void testFailOnInvalidRecord() {
+        final Stream<Record> records = Fasta.parser().read(Stream.of(
+                ">id1",
+                "abc1",
+                ">id2"
+        ), ErrorPolicy.FAIL_FAST);
+        final InvalidRecord thrown = assertThrows(InvalidRecord.class, () -> records.collect(toList()));
+        assertThat(thrown, is(new InvalidRecord(new InvalidNumberOfLines(1))));
+    }
 }
@@ -26,11 +26,14 @@ package metamer.fastq;
 
 import io.vavr.collection.Seq;
 import io.vavr.control.Either;
+import metamer.io.ErrorPolicy;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import java.util.stream.Stream;
 
+import static java.util.stream.Collectors.toList;
+
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.instanceOf;
@@ -56,4 +59,49 @@ public class FastQTest {
                 new Record("MyVeryBeautifulID", "", "NATC", "!!!!".getBytes())
         ));
     }
+
+    @Test
+    @DisplayName("records should be read when quality line starts with the identifier prefix")
+    void testQualityStartingWithPrefix() {
+        final Either<Exception, Seq<Record>> records = FastQ.parser().read(Stream.of(
+                "@first",
+                "ACGT",
+                "+",
+                "@@II",
+                "",
+                "@second",
+                "TTGA",
+                "+second",
+                "@!!!"
+        ));
+
+        assertThat(records, instanceOf(Either.Right.class));
+        assertThat(records.get(), contains(
+                new Record("first", "", "ACGT", "@@II".getBytes()),
+                new Record("second", "", "TTGA", "@!!!".getBytes())
+        ));
+    }
+
+    @Test
+    @DisplayName("records after a malformed one should be read when invalid records are skipped")
+    void testSkipMalformedRecord() {
+        final Stream<Record> records = FastQ.parser().read(Stream.of(
+                "@broken",
+                "ACGT",
+                "+",
+                "@second",
+                "TTGA",
+                "+",
+                "IIII",
+                "@third",
+                "GGCA",
+                "+third",
+                "@!!!"
+        ), ErrorPolicy.SKIP);
+
+        assertThat(records.collect(toList()), contains(
+                new Record("second", "", "TTGA", "IIII".getBytes()),
+                new Record("third", "", "GGCA", "@!!!".getBytes())
+        ));
+    }
 }
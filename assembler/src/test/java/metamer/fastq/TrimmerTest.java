@@ -0,0 +1,53 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.fastq;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class TrimmerTest {
+    private final Trimmer trimmer = new Trimmer(20);
+
+    private String trim(final String sequence, final String quality) {
+        return trimmer.trim(new Record("id", "", sequence, quality.getBytes())).toString();
+    }
+
+    @Test
+    @DisplayName("bases below threshold should be trimmed from both ends of read")
+    void testTrimEnds() {
+        assertThat(trim("ACGTACGTAC", "##IIIIII##"), is("GTACGT"));
+        assertThat(trim("ACGT", "####"), is(""));
+    }
+
+    @Test
+    @DisplayName("read should be cut at the first window with low mean quality")
+    void testTrimWindow() {
+        assertThat(trim("ACGTACGTACGT", "IIIIII++++II"), is("ACGTA"));
+        assertThat(trim("ACGTACGT", "IIII+III"), is("ACGTACGT"));
+    }
+}
@@ -33,6 +33,7 @@ import static java.util.stream.Collectors.toList;
 import static metamer.graph.Graph.graph;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 
 
 public class GraphCycleTest {
@@ -51,4 +52,37 @@ public class GraphCycleTest {
         GraphCycle graphCycle = new GraphCycle(graph, 3);
         assertThat(graphCycle.findCycle().collect(toList()), contains("ABCDERTTTQWERY"));
     }
+
+    @Test
+    @DisplayName("graphCycle field should contain every branch when there is no Euler's path")
+    public void testBranchingGraph() {
+        Graph graph = graph(3, Stream.of("ABC", "ABD")).optimizeGraph();
+        GraphCycle graphCycle = new GraphCycle(graph, 3);
+        assertThat(graphCycle.findCycle().collect(toList()), containsInAnyOrder("ABC", "ABD"));
+    }
+
+    @Test
+    @DisplayName("contigs should contain every trail and every component when graph is walked")
+    public void testContigs() {
+        Graph graph = graph(3, Stream.of("ABC", "ABD", "XYZ")).optimizeGraph();
+        GraphCycle graphCycle = new GraphCycle(graph, 3);
+        assertThat(graphCycle.contigs().collect(toList()), containsInAnyOrder("ABC", "ABD", "XYZ"));
+    }
+
+    @Test
+    @DisplayName("contig should be found once when reads come from both strands of canonical graph")
+    public void testCanonicalContigs() {
+        Graph graph = graph(6, Stream.of("TTGACCATGACGG", "CCGTCATGGTCAA"), 1, 1, true).optimizeGraph();
+        GraphCycle graphCycle = new GraphCycle(graph, 6);
+        assertThat(graphCycle.contigs().collect(toList()), contains("TTGACCATGACGG"));
+    }
+
+    @Test
+    @DisplayName("contig should have mean count of its k-mers as coverage")
+    public void testContigCoverage() {
+        Graph graph = graph(5, Stream.of("ACGTTGCAAC", "ACGTTGCAAC", "ACGTTGCAAC", "GGGCCCAT")).optimizeGraph();
+        GraphCycle graphCycle = new GraphCycle(graph, 5);
+        assertThat(graphCycle.coveredContigs().collect(toList()),
+                containsInAnyOrder(new Contig("ACGTTGCAAC", 3), new Contig("GGGCCCAT", 1)));
+    }
 }
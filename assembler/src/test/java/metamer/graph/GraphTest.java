@@ -24,14 +24,21 @@
  */
 package metamer.graph;
 
+import metamer.graph.exception.InvalidSnapshot;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Stream;
 
+import static java.util.stream.Collectors.toList;
 import static metamer.graph.Graph.graph;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.not;
@@ -39,6 +46,7 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 
 
@@ -73,6 +81,16 @@ class GraphTest {
         ));
     }
 
+    @Test
+    @DisplayName("cycle without branches should be connected into one node")
+    public void testCycleOptimization() {
+        Graph gr = graph(3, Stream.of("ACGTAC"));
+        Graph optGr = gr.optimizeGraph();
+        assertThat(optGr.nodes(), contains(new Node("ACGTA")));
+        assertThat(optGr.edges(), contains(new Edge(new Node("ACGTA"), new Node("ACGTA"), 3)));
+        assertThat(gr.nodes(), hasSize(4));
+    }
+
     @Test
     @DisplayName("node should not present if there is no way to connect parts")
     public void testIfNodeNotPresent() {
@@ -86,7 +104,7 @@ class GraphTest {
         Graph gr = graph(3, Stream.of("AARAT", "AAT"));
         Node tmp = new Node("AA");
         assertThat(gr.getNeighbors().get(gr.nodes().stream()
-                .filter(data -> Objects.equals(data, tmp)).findFirst().get()), hasSize(3));
+                .filter(data -> Objects.equals(data, tmp)).findFirst().get()), hasSize(2));
     }
 
     @Test
@@ -95,7 +113,7 @@ class GraphTest {
         Graph gr = graph(3, Stream.of("AARAT", "AAT"));
         Node tmp = new Node("AA");
         assertThat(gr.nodes().stream().filter(data -> Objects.equals(data, tmp))
-                .findFirst().get().kmer, equalTo("AA"));
+                .findFirst().get().kmer(), equalTo("AA"));
     }
 
     @Test
@@ -105,8 +123,139 @@ class GraphTest {
         Set<Edge> edges = gr.edges();
         assertThat(gr.edges(), containsInAnyOrder(
                 new Edge(new Node("AR"), new Node("RA"), 3),
-                new Edge(new Node("RA"), new Node("AT"), 3),
-                new Edge(new Node("RA"), new Node("AR"), 3)
+                new Edge(new Node("RA"), new Node("AT"), 3)
+        ));
+    }
+
+    @Test
+    @DisplayName("nodes should not be connected when there is no k-mer joining them")
+    public void testIfUnobservedEdgeNotPresent() {
+        Graph gr = graph(3, Stream.of("AAT", "TAC"));
+        assertThat(gr.edges(), containsInAnyOrder(
+                new Edge(new Node("AA"), new Node("AT"), 3),
+                new Edge(new Node("TA"), new Node("AC"), 3)
         ));
     }
+
+    @Test
+    @DisplayName("graph built by several threads should be the same as built by one thread")
+    public void testParallelConstruction() {
+        String[] reads = {"ATGGCGTGCA", "GGCGTNNGCATT", "AARAT", "AAT", "CA", "TTGCATGGCGTGCAAT"};
+        Graph single = graph(4, Stream.of(reads));
+        Graph parallel = graph(4, Stream.of(reads), 3);
+        assertThat(parallel.nodes(), equalTo(single.nodes()));
+        assertThat(parallel.edges(), equalTo(single.edges()));
+    }
+
+    @Test
+    @DisplayName("k-mers seen less than minimal number of times should be dropped when create graph")
+    public void testSolidKmers() {
+        String[] reads = {"ACGTT", "ACGTT", "ACGAA"};
+        Set<Node> solid = Set.of(new Node("AC"), new Node("CG"), new Node("GT"), new Node("TT"));
+        assertThat(graph(3, Stream.of(reads), 1, 2).nodes(), equalTo(solid));
+        assertThat(graph(3, Stream.of(reads), 3, 2).nodes(), equalTo(solid));
+        assertThat(graph(3, Stream.of(reads), 1, 2).edges(), hasSize(3));
+    }
+
+    @Test
+    @DisplayName("k-mers should be counted from the first sighting when they are prefiltered")
+    public void testPrefilteredKmersCount() {
+        String[] reads = {"ACGTT", "ACGTT", "ACGTT", "ACGAA", "ACGAA"};
+        Set<Node> solid = Set.of(new Node("AC"), new Node("CG"), new Node("GT"), new Node("TT"));
+        assertThat(graph(3, Stream.of(reads), 1, 3).nodes(), equalTo(solid));
+        assertThat(graph(3, Stream.of(reads), 3, 3).nodes(), equalTo(solid));
+        assertThat(graph(3, Stream.of(reads), 1, 2).nodes(), hasSize(6));
+    }
+
+    @Test
+    @DisplayName("edge count should stop at maximal count instead of wrapping around")
+    public void testSaturatedCount() {
+        Adjacency adjacency = new Adjacency();
+        adjacency.nodes(2);
+        int edge = adjacency.link(0, 1, Adjacency.MAX_COUNT - 1);
+        adjacency.link(0, 1, 2);
+        assertThat(adjacency.count(edge), equalTo(Adjacency.MAX_COUNT));
+        adjacency.link(0, 1);
+        assertThat(adjacency.count(edge), equalTo(Adjacency.MAX_COUNT));
+    }
+
+    @Test
+    @DisplayName("k-mer and its reverse complement should be the same node of canonical graph")
+    public void testCanonicalKmers() {
+        String[] reads = {"AACCG", "CGGTT"};
+        Set<Node> canonical = Set.of(new Node("AAC"), new Node("ACC"), new Node("CCG"));
+        assertThat(graph(4, Stream.of(reads), 1, 1, true).nodes(), equalTo(canonical));
+        assertThat(graph(4, Stream.of(reads), 3, 1, true).nodes(), equalTo(canonical));
+        assertThat(graph(4, Stream.of(reads), 1, 1, true).edges(), hasSize(2));
+        assertThat(graph(4, Stream.of(reads), 1, 1, false).nodes(), hasSize(6));
+    }
+
+    @Test
+    @DisplayName("graph built from disk partitions should be the same as built in memory")
+    public void testPartitionedGraph() {
+        String[] reads = {"ACGTTGCATGCCATAGGCTAGTCAGTTACGA", "TTGCATGCCATAGG", "GGCTAGTCAGNTACGATT", "CATAG", "ACG"};
+        Graph graph = graph(6, Stream.of(reads), 1, 1, false);
+        Graph solid = graph(6, Stream.of(reads), 1, 2, false);
+        Graph canonical = graph(6, Stream.of(reads), 1, 1, true);
+        assertThat(graph(6, Stream.of(reads), 1, 1, false, 1).nodes(), equalTo(graph.nodes()));
+        assertThat(graph(6, Stream.of(reads), 3, 1, false, 1).edges(), equalTo(graph.edges()));
+        assertThat(graph(6, Stream.of(reads), 1, 2, false, 1).nodes(), equalTo(solid.nodes()));
+        assertThat(graph(6, Stream.of(reads), 1, 1, true, 1).nodes(), equalTo(canonical.nodes()));
+    }
+
+    @Test
+    @DisplayName("graph read from snapshot should be the same as saved one")
+    public void testSnapshot() throws IOException {
+        String[] reads = {"ACGTTGCATGCCATAGGCTAGTCAGTTACGA", "TTGCATGCCATAGG", "GGCTAGTCAGNTACGATT", "CATAG", "ACG"};
+        Path path = Files.createTempFile("graph", ".bin");
+        path.toFile().deleteOnExit();
+        for (final Graph graph : List.of(graph(6, Stream.of(reads)), graph(6, Stream.of(reads), 1, 1, true),
+                graph(6, Stream.of(reads), 1, 1, true).optimizeGraph())) {
+            graph.save(path);
+            Graph loaded = Graph.load(path);
+            assertThat(loaded.nodes(), equalTo(graph.nodes()));
+            assertThat(loaded.edges(), equalTo(graph.edges()));
+            assertThat(new GraphCycle(loaded, 6).coveredContigs().collect(toList()),
+                    equalTo(new GraphCycle(graph, 6).coveredContigs().collect(toList())));
+        }
+    }
+
+    @Test
+    @DisplayName("file which isn't a whole graph snapshot shouldn't be read")
+    public void testInvalidSnapshot() throws IOException {
+        Path path = Files.createTempFile("graph", ".bin");
+        path.toFile().deleteOnExit();
+        graph(6, Stream.of("ACGTTGCATGCCATAGG")).save(path);
+        byte[] saved = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(saved, saved.length - 8));
+        assertThrows(InvalidSnapshot.class, () -> Graph.load(path));
+        for (final int position : new int[]{12, 64, saved.length / 2, saved.length - 1}) {
+            byte[] damaged = saved.clone();
+            damaged[position] ^= 1;
+            Files.write(path, damaged);
+            assertThrows(InvalidSnapshot.class, () -> Graph.load(path));
+        }
+        Files.write(path, "ACGTTGCATGCCATAGG".getBytes());
+        assertThrows(InvalidSnapshot.class, () -> Graph.load(path));
+    }
+
+    @Test
+    @DisplayName("short dead end with a sequencing error should be clipped")
+    public void testTipClipping() {
+        String genome = "CGATTCAAATGACGGCAGCAGGCCGGGAGTCCCTGAGAGGCT";
+        String[] reads = {genome, genome, genome.substring(0, 25) + "A"};
+        assertThat(graph(7, Stream.of(reads)).optimizeGraph().nodes(), hasSize(3));
+        assertThat(graph(7, Stream.of(reads)).simplify().nodes(), contains(new Node(genome)));
+        assertThat(graph(7, Stream.of(reads), 1, 1, true).simplify().nodes(), contains(new Node(genome)));
+    }
+
+    @Test
+    @DisplayName("less covered path of a bubble with a sequencing error should be popped")
+    public void testBubblePopping() {
+        String genome = "CGATTCAAATGACGGCAGCAGGCCGGGAGTCCCTGAGAGGCT";
+        String[] reads = {genome, genome.substring(0, 20) + "A" + genome.substring(21), genome};
+        assertThat(graph(7, Stream.of(reads)).optimizeGraph().nodes(), hasSize(4));
+        assertThat(graph(7, Stream.of(reads)).simplify().nodes(), contains(new Node(genome)));
+        assertThat(graph(7, Stream.of(reads), 1, 1, true).simplify().nodes(), contains(new Node(genome)));
+    }
 }
@@ -0,0 +1,77 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.graph;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+class KmerTest {
+    @Test
+    @DisplayName("nucleotide kmer should be packed and unpacked back to the same string")
+    public void testPackedRoundTrip() {
+        final String sequence = "ACGTTGCAACGTTGCAACGTTGCAACGTTGCAACGTTGCA";
+        final Kmer kmer = Kmer.of(sequence);
+        assertThat(kmer.packed(), is(true));
+        assertThat(kmer.toString(), is(sequence));
+    }
+
+    @Test
+    @DisplayName("kmer with symbols other than nucleotides should be unpacked back to the same string")
+    public void testRawRoundTrip() {
+        final Kmer kmer = Kmer.of("ACGTN");
+        assertThat(kmer.packed(), is(false));
+        assertThat(kmer.toString(), is("ACGTN"));
+    }
+
+    @Test
+    @DisplayName("rolling window should be equal to kmer created from substring")
+    public void testRollingWindow() {
+        final String sequence = "TTGACCATGACGGATCCAGTACGATCGACTAGCATCGACTAGCA";
+        final int length = 33;
+        final long[] window = new long[Kmer.words(length, Kmer.PACKED_BITS)];
+        for (int i = 0; i < sequence.length(); i++) {
+            Kmer.shift(window, 0, window.length, length, Kmer.PACKED_BITS, Kmer.code(sequence.charAt(i)));
+        }
+        final Kmer rolled = new Kmer(window, length, true);
+        assertThat(rolled, is(Kmer.of(sequence, sequence.length() - length, sequence.length())));
+    }
+
+    @Test
+    @DisplayName("reverse complement should be read backwards with complementary nucleotides")
+    public void testReverseComplement() {
+        final Kmer packed = Kmer.of("ACGTTGCAACGTTGCAACGTTGCAACGTTGCAACGTA");
+        final long[] reverse = new long[packed.words().length];
+        Kmer.reverseComplement(packed.words(), 0, reverse.length, packed.length(), true, reverse);
+        assertThat(new Kmer(reverse, packed.length(), true).toString(), is("TACGTTGCAACGTTGCAACGTTGCAACGTTGCAACGT"));
+
+        final Kmer raw = Kmer.of("ACGTN");
+        final long[] rawReverse = new long[raw.words().length];
+        Kmer.reverseComplement(raw.words(), 0, rawReverse.length, raw.length(), false, rawReverse);
+        assertThat(new Kmer(rawReverse, raw.length(), false).toString(), is("NACGT"));
+    }
+}
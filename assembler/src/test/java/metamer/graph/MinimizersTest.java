@@ -0,0 +1,60 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.graph;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+class MinimizersTest {
+    @Test
+    @DisplayName("super-k-mers should overlap by k - 1 symbols and share minimizer of every their k-mer")
+    public void testSuperKmers() {
+        final String sequence = "TTGACCATGACGGATCCAGTACGATCGACTAGCATCGACTAGCAGGTACCATTGACAGTTACAGATGACCA";
+        final int k = 21;
+        final Minimizers minimizers = new Minimizers(k, true);
+        final List<int[]> runs = new ArrayList<>();
+        final List<Long> hashes = new ArrayList<>();
+        minimizers.scan(sequence, (from, to, minimizer) -> {
+            runs.add(new int[]{from, to});
+            hashes.add(minimizer);
+        });
+        int next = 0;
+        for (int i = 0; i < runs.size(); i++) {
+            final int[] run = runs.get(i);
+            assertThat(run[0], is(next));
+            for (int from = run[0]; from + k <= run[1]; from++) {
+                assertThat(minimizers.minimizer(sequence.substring(from, from + k)), is(hashes.get(i)));
+            }
+            next = run[1] - k + 1;
+        }
+        assertThat(next, is(sequence.length() - k + 1));
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.io;
+
+import metamer.fasta.Fasta;
+import metamer.fastq.FastQ;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+class ChannelReaderTest {
+    private static List<String> read(final String content, final Parser<? extends HasSequence> parser)
+            throws IOException {
+        return read(content, parser, false);
+    }
+
+    private static List<String> read(
+            final String content,
+            final Parser<? extends HasSequence> parser,
+            final boolean parallel) throws IOException {
+        final Path path = Files.createTempFile("inp", ".txt");
+        path.toFile().deleteOnExit();
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        try (final Stream<CharSequence> sequences = new ChannelReader<>(path, parser, ErrorPolicy.SKIP, 16).read()) {
+            final Stream<CharSequence> source = parallel ? sequences.parallel() : sequences;
+            return source.map(CharSequence::toString).collect(toList());
+        }
+    }
+
+    @Test
+    @DisplayName("sequences should be joined when fasta records span several lines and windows")
+    void testReadFasta() throws IOException {
+        final List<String> sequences = read(
+                ">id1 test\nACGT\n>id2\nAC\nGT\r\nTT\n\n>id3\nПривет\n>id4\n>id5\nGGG", Fasta.parser());
+        assertThat(sequences, contains("ACGT", "ACGTTT", "Привет", "GGG"));
+    }
+
+    @Test
+    @DisplayName("invalid fastq records should be skipped when file is read")
+    void testReadFastQ() throws IOException {
+        final List<String> sequences = read(
+                "@r1\nACGT\n+\nIIII\n@r2 d\nACGN\n+r2\n@@@@\n@r3\nACXT\n+\nIIII\n@r4\nAC\n+\nI\n", FastQ.parser());
+        assertThat(sequences, contains("ACGT", "ACGN"));
+    }
+
+    @Test
+    @DisplayName("fastq records after a malformed one should be read when it is skipped")
+    void testResyncAfterMalformedFastQ() throws IOException {
+        final List<String> sequences = read(
+                "@r1\nACGT\n+\n@r2\nTTGA\n+\nIIII\n@r3\nGGCA\n+r3\n@!!!\n@r4\nCCGT\n+\nIIII\n", FastQ.parser());
+        assertThat(sequences, contains("TTGA", "GGCA", "CCGT"));
+    }
+
+    @Test
+    @DisplayName("every record should be read once when file is split into ranges")
+    void testReadInParallel() throws IOException {
+        final List<String> expected = IntStream.range(0, 64)
+                .mapToObj(i -> Integer.toBinaryString(i).replace('0', 'A').replace('1', 'C'))
+                .collect(toList());
+        final String fastq = expected.stream()
+                .map(s -> "@r\n" + s + "\n+\n" + s.replace('A', '@').replace('C', '+') + "\n")
+                .collect(joining());
+        final String fasta = expected.stream().map(s -> ">r\n" + s + "\n").collect(joining());
+        assertThat(read(fastq, FastQ.parser(), true), is(expected));
+        assertThat(read(fasta, Fasta.parser(), true), is(expected));
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.io;
+
+import metamer.fasta.Fasta;
+import metamer.fasta.Record;
+import metamer.fastq.FastQ;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+class FileReaderTest {
+    private static final int BLOCK = 100;
+
+    private final List<String> expected = IntStream.range(0, 256)
+            .mapToObj(i -> Integer.toBinaryString(i).replace('0', 'A').replace('1', 'G'))
+            .collect(toList());
+    private final byte[] fasta = expected.stream()
+            .map(s -> ">id\n" + s + "\n")
+            .collect(joining())
+            .getBytes(StandardCharsets.UTF_8);
+
+    private static List<String> read(final Path path, final int threads) {
+        try (final Stream<Record> records = new FileReader<>(path, Fasta.parser(), ErrorPolicy.FAIL_FAST, threads)
+                .read()) {
+            return records.map(Record::sequence).collect(toList());
+        }
+    }
+
+    private static Path file(final String suffix, final byte[] content) throws IOException {
+        final Path path = Files.createTempFile("inp", suffix);
+        path.toFile().deleteOnExit();
+        Files.write(path, content);
+        return path;
+    }
+
+    private static byte[] bgzf(final byte[] content) {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        for (int from = 0; from <= content.length; from += BLOCK) {
+            final int length = Math.min(BLOCK, content.length - from);
+            final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            deflater.setInput(content, from, length);
+            deflater.finish();
+            final byte[] compressed = new byte[length * 2 + 64];
+            final int size = deflater.deflate(compressed);
+            deflater.end();
+            final CRC32 crc = new CRC32();
+            crc.update(content, from, length);
+            final ByteBuffer block = ByteBuffer.allocate(18 + size + 8).order(ByteOrder.LITTLE_ENDIAN);
+            block.put(new byte[]{0x1F, (byte) 0x8B, 8, 4, 0, 0, 0, 0, 0, (byte) 0xFF, 6, 0, 'B', 'C', 2, 0});
+            block.putShort((short) (block.capacity() - 1)).put(compressed, 0, size);
+            block.putInt((int) crc.getValue()).putInt(length);
+            output.write(block.array(), 0, block.capacity());
+        }
+        return output.toByteArray();
+    }
+
+    @Test
+    @DisplayName("gzip file should be detected by magic bytes and decompressed")
+    void testReadGzip() throws IOException {
+        final ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        try (final OutputStream output = new GZIPOutputStream(gzip)) {
+            output.write(fasta);
+        }
+        final Path path = file(".fasta", gzip.toByteArray());
+        assertThat(Compression.of(path), is(Compression.GZIP));
+        assertThat(read(path, 1), is(expected));
+    }
+
+    @Test
+    @DisplayName("gzip fastq file should be read when quality lines start with the identifier prefix")
+    void testReadGzipFastQ() throws IOException {
+        final byte[] fastq = expected.stream()
+                .map(s -> "@id\n" + s + "\n+\n" + "@".repeat(s.length()) + "\n")
+                .collect(joining())
+                .getBytes(StandardCharsets.UTF_8);
+        final ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        try (final OutputStream output = new GZIPOutputStream(gzip)) {
+            output.write(fastq);
+        }
+        final Path path = file(".fastq.gz", gzip.toByteArray());
+        try (final Stream<metamer.fastq.Record> records = new FileReader<>(path, FastQ.parser()).read()) {
+            assertThat(records.map(metamer.fastq.Record::sequence).collect(toList()), is(expected));
+        }
+    }
+
+    @Test
+    @DisplayName("bgzf file should be decompressed by blocks in parallel")
+    void testReadBgzf() throws IOException {
+        final Path path = file(".fasta.gz", bgzf(fasta));
+        assertThat(Compression.of(path), is(Compression.BGZF));
+        assertThat(read(path, 1), is(expected));
+        assertThat(read(path, 4), is(expected));
+    }
+
+    @Test
+    @DisplayName("plain file should be read as is")
+    void testReadPlain() throws IOException {
+        final Path path = file(".fasta", fasta);
+        assertThat(Compression.of(path), is(Compression.NONE));
+        assertThat(read(path, 4), is(expected));
+    }
+}
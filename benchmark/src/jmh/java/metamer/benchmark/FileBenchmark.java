@@ -0,0 +1,120 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.benchmark;
+
+import metamer.fasta.Fasta;
+import metamer.fasta.Record;
+import metamer.fastq.FastQ;
+import metamer.io.FileReader;
+import metamer.io.FileWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Benchmarks of reading records from files and writing them to a file.
+ * <p>
+ * Files hold a sample of {@link Samples#BASES} bases: 150 bp short reads, 10 kb long reads or multi-megabase
+ * records. Records/s and bytes/s are reported by {@link Counters}, bytes allocated per record
+ * are {@code gc.alloc.rate.norm} of the gc profiler divided by the number of records of the sample.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FileBenchmark {
+    @Param({"150", "10000", "4000000"})
+    private int length;
+
+    private List<Record> records;
+    private Path fasta;
+    private Path fastq;
+    private Path output;
+    private long fastaBytes;
+    private long fastqBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        records = Samples.records(length);
+        final List<String> fastaLines = Fasta.parser().show(records.stream()).collect(toList());
+        final List<String> fastqLines = Samples.fastq(records);
+        fasta = Files.write(Files.createTempFile("benchmark", ".fasta"), fastaLines);
+        fastq = Files.write(Files.createTempFile("benchmark", ".fastq"), fastqLines);
+        output = Files.createTempFile("benchmark", ".fasta");
+        fastaBytes = Files.size(fasta);
+        fastqBytes = Files.size(fastq);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(fasta);
+        Files.deleteIfExists(fastq);
+        Files.deleteIfExists(output);
+    }
+
+    @Benchmark
+    public void fastaFileRead(final Counters counters, final Blackhole blackhole) {
+        try (Stream<Record> read = new FileReader<>(fasta, Fasta.parser()).read()) {
+            read.forEach(blackhole::consume);
+        }
+        counters.add(records.size(), fastaBytes);
+    }
+
+    @Benchmark
+    public void fastqFileRead(final Counters counters, final Blackhole blackhole) {
+        try (Stream<metamer.fastq.Record> read = new FileReader<>(fastq, FastQ.parser()).read()) {
+            read.forEach(blackhole::consume);
+        }
+        counters.add(records.size(), fastqBytes);
+    }
+
+    @Benchmark
+    public void fastaFileWrite(final Counters counters) {
+        new FileWriter<>(output, Fasta.parser()).write(records.stream());
+        counters.add(records.size(), fastaBytes);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.benchmark;
+
+import metamer.graph.Edge;
+import metamer.graph.Graph;
+import metamer.graph.GraphCycle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Benchmarks of graph construction, compaction and traversal.
+ * <p>
+ * Reads are sampled from a random genome at random positions, every base of a read is replaced with
+ * another nucleotide with probability {@code errorRate}. Genome and reads are seeded, so every run
+ * measures the same graph.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GraphBenchmark {
+    private static final int READ_LENGTH = 100;
+
+    @Param({"10000", "100000"})
+    private int genomeSize;
+
+    @Param({"21", "31"})
+    private int k;
+
+    @Param({"10", "30"})
+    private int coverage;
+
+    @Param({"0.0", "0.01"})
+    private double errorRate;
+
+    private List<String> reads;
+    private Graph graph;
+    private Graph optimized;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        reads = Samples.reads(genomeSize, READ_LENGTH, coverage, errorRate);
+        graph = Graph.graph(k, reads.stream());
+        optimized = graph.optimizeGraph();
+    }
+
+    @Benchmark
+    public Graph build() {
+        return Graph.graph(k, reads.stream());
+    }
+
+    @Benchmark
+    public Graph optimize() {
+        return graph.optimizeGraph();
+    }
+
+    @Benchmark
+    public Set<Edge> edges() {
+        return graph.edges();
+    }
+
+    @Benchmark
+    public List<String> findCycle() {
+        return new GraphCycle(optimized, k).findCycle().collect(toList());
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.benchmark;
+
+import metamer.fasta.Fasta;
+import metamer.fasta.Record;
+import metamer.fastq.FastQ;
+import metamer.io.ErrorPolicy;
+import metamer.utils.Strings;
+import metamer.utils.WindowConsumer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+import static metamer.utils.Splitter.splitBefore;
+import static metamer.utils.Streams.chunks;
+
+/**
+ * Benchmarks of parsing and showing records in memory.
+ * <p>
+ * Every invocation processes a whole sample of {@link Samples#BASES} bases: 150 bp short reads, 10 kb long reads
+ * or multi-megabase records. Records/s and bytes/s are reported by {@link Counters}, bytes allocated per record
+ * are {@code gc.alloc.rate.norm} of the gc profiler divided by the number of records of the sample.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ParsingBenchmark {
+    private static final int WINDOW = 31;
+
+    @Param({"150", "10000", "4000000"})
+    private int length;
+
+    private List<Record> records;
+    private List<String> fasta;
+    private List<String> fastq;
+    private long fastaBytes;
+    private long fastqBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        records = Samples.records(length);
+        fasta = Fasta.parser().show(records.stream()).collect(toList());
+        fastq = Samples.fastq(records);
+        fastaBytes = Samples.bytes(fasta);
+        fastqBytes = Samples.bytes(fastq);
+    }
+
+    @Benchmark
+    public void fastaRead(final Counters counters, final Blackhole blackhole) {
+        Fasta.parser().read(fasta.stream(), ErrorPolicy.FAIL_FAST).forEach(blackhole::consume);
+        counters.add(records.size(), fastaBytes);
+    }
+
+    @Benchmark
+    public void fastqRead(final Counters counters, final Blackhole blackhole) {
+        FastQ.parser().read(fastq.stream(), ErrorPolicy.FAIL_FAST).forEach(blackhole::consume);
+        counters.add(records.size(), fastqBytes);
+    }
+
+    @Benchmark
+    public void splitBeforeChunks(final Counters counters, final Blackhole blackhole) {
+        chunks(splitBefore((String line) -> line.startsWith(">")), fasta.stream()).forEach(blackhole::consume);
+        counters.add(records.size(), fastaBytes);
+    }
+
+    @Benchmark
+    public void fastaShow(final Counters counters, final Blackhole blackhole) {
+        Fasta.parser().show(records.stream()).forEach(blackhole::consume);
+        counters.add(records.size(), fastaBytes);
+    }
+
+    @Benchmark
+    public void substringWindows(final Counters counters, final Blackhole blackhole) {
+        for (final Record record : records) {
+            Strings.windows(record.sequence, WINDOW).forEach(blackhole::consume);
+        }
+        counters.add(records.size(), Samples.BASES);
+    }
+
+    @Benchmark
+    public void rollingWindows(final Counters counters, final Blackhole blackhole) {
+        final WindowConsumer consumer = (start, forward, reverse) -> blackhole.consume(forward);
+        for (final Record record : records) {
+            Strings.windows(record.sequence, WINDOW, consumer);
+        }
+        counters.add(records.size(), Samples.BASES);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.benchmark;
+
+import metamer.fasta.Record;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A namespace for functions generating seeded input for benchmarks.
+ */
+final class Samples {
+    /**
+     * Number of bases of all records of a sample, so samples of short and long records are of the same size.
+     */
+    static final int BASES = 1 << 24;
+
+    private static final long SEED = 42;
+    private static final char[] NUCLEOTIDES = {'A', 'C', 'G', 'T'};
+    private static final char MIN_QUALITY = '!';
+    private static final int QUALITIES = 42;
+
+    private Samples() {
+    }
+
+    /**
+     * Generate fasta records of random nucleotides.
+     *
+     * @param length Number of bases of every record.
+     * @return Records with {@link #BASES} bases in total.
+     */
+    static List<Record> records(final int length) {
+        final Random random = new Random(SEED);
+        final List<Record> records = new ArrayList<>();
+        for (int i = 0; i < BASES / length; i++) {
+            records.add(new Record("read" + i, "length=" + length, symbols(random, NUCLEOTIDES, length)));
+        }
+        return records;
+    }
+
+    /**
+     * Generate reads sampled from a random genome.
+     * <p>
+     * Reads start at random positions of the genome, every base of a read is replaced with another nucleotide
+     * with probability {@code errorRate}.
+     *
+     * @param genomeSize Number of bases of the genome.
+     * @param length     Number of bases of every read.
+     * @param coverage   Mean number of reads covering a base of the genome.
+     * @param errorRate  Probability of a substitution.
+     * @return Reads in order they were sampled.
+     */
+    static List<String> reads(final int genomeSize, final int length, final int coverage, final double errorRate) {
+        final Random random = new Random(SEED);
+        final String genome = symbols(random, NUCLEOTIDES, genomeSize);
+        final int count = genomeSize * coverage / length;
+        final List<String> reads = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final int start = random.nextInt(genome.length() - length + 1);
+            final char[] read = genome.substring(start, start + length).toCharArray();
+            for (int j = 0; j < read.length; j++) {
+                if (random.nextDouble() < errorRate) {
+                    read[j] = substitute(random, read[j]);
+                }
+            }
+            reads.add(new String(read));
+        }
+        return reads;
+    }
+
+    /**
+     * Generate lines of fastq records with the same sequences as {@link #records(int)}.
+     * <p>
+     * Qualities are Phred scores from 0 to 41 of Illumina 1.8+, so some quality lines start with {@code @}.
+     *
+     * @param records Records to take sequences from.
+     * @return Four lines for every record, the sequence and the quality are never wrapped.
+     */
+    static List<String> fastq(final List<Record> records) {
+        final Random random = new Random(SEED);
+        final char[] qualities = new char[QUALITIES];
+        for (int i = 0; i < qualities.length; i++) {
+            qualities[i] = (char) (MIN_QUALITY + i);
+        }
+        final List<String> lines = new ArrayList<>(records.size() * 4);
+        for (final Record record : records) {
+            lines.add("@" + record.uniqueIdentifier + " " + record.additionalInformation);
+            lines.add(record.sequence);
+            lines.add("+");
+            lines.add(symbols(random, qualities, record.sequence.length()));
+        }
+        return lines;
+    }
+
+    /**
+     * Count characters of lines with line separators.
+     *
+     * @param lines Lines of a sample.
+     * @return Number of bytes the lines take in a file.
+     */
+    static long bytes(final List<String> lines) {
+        long bytes = 0;
+        for (final String line : lines) {
+            bytes += line.length() + System.lineSeparator().length();
+        }
+        return bytes;
+    }
+
+    private static String symbols(final Random random, final char[] alphabet, final int length) {
+        final char[] symbols = new char[length];
+        for (int i = 0; i < length; i++) {
+            symbols[i] = alphabet[random.nextInt(alphabet.length)];
+        }
+        return new String(symbols);
+    }
+
+    private static char substitute(final Random random, final char nucleotide) {
+        final char other = NUCLEOTIDES[random.nextInt(NUCLEOTIDES.length - 1)];
+        return other == nucleotide ? NUCLEOTIDES[NUCLEOTIDES.length - 1] : other;
+    }
+}
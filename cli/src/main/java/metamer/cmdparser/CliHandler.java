@@ -25,14 +25,20 @@
 package metamer.cmdparser;
 
 import io.vavr.API;
+import io.vavr.collection.List;
 import io.vavr.collection.Seq;
 import io.vavr.control.Either;
 import io.vavr.control.Try;
 import io.vavr.control.Validation;
 import metamer.assembler.Assembler;
+import metamer.assembler.Source;
 import metamer.fasta.Fasta;
 import metamer.fasta.Record;
 import metamer.fastq.FastQ;
+import metamer.fastq.Trimmer;
+import metamer.io.ChannelReader;
+import metamer.io.Compression;
+import metamer.io.ErrorPolicy;
 import metamer.io.FileReader;
 import metamer.io.FileWriter;
 import metamer.io.HasSequence;
@@ -40,6 +46,9 @@ import metamer.io.Parser;
 import metamer.io.StdInReader;
 import metamer.io.StdOutWriter;
 import metamer.io.Writer;
+import metamer.io.exception.InvalidRecord;
+import metamer.utils.Streams;
+import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.CommandLineParser;
@@ -48,11 +57,15 @@ import org.apache.commons.cli.DefaultParser;
 import org.apache.commons.cli.ParseException;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
@@ -76,6 +89,13 @@ import metamer.cmdparser.exception.FileIsNotWritable;
 import metamer.cmdparser.exception.FileIsNotReadable;
 import metamer.cmdparser.exception.FileAlreadyExists;
 import metamer.cmdparser.exception.InvalidLength;
+import metamer.cmdparser.exception.InvalidThreads;
+import metamer.cmdparser.exception.InvalidTop;
+import metamer.cmdparser.exception.InvalidQuality;
+import metamer.cmdparser.exception.InvalidMinCount;
+import metamer.cmdparser.exception.InvalidMaxMemory;
+import metamer.cmdparser.exception.NoCheckpointDir;
+import metamer.cmdparser.exception.PathIsNotDirectory;
 
 /**
  * Implementation of command line arguments parsing.
@@ -86,8 +106,21 @@ public class CliHandler {
             .addOption("h", "help", false, "Present help")
             .addOption("k", true, "Length of k mer in De Bruijn graph")
             .addOption("f", "format", true, "Format of input data: fasta or fastq")
-            .addOption("i", "input", true, "Input file with reads to be analyzed")
-            .addOption("o", "output", true, "Output file to write result to");
+            .addOption("i", "input", true, "Input file with reads, may be repeated")
+            .addOption("o", "output", true, "Output file to write result to")
+            .addOption("t", "threads", true, "Number of threads to build graph with")
+            .addOption("n", "top", true, "Number of the longest contigs to write")
+            .addOption(Option.builder().longOpt("r1").hasArg().desc("File with the first reads of pairs").build())
+            .addOption(Option.builder().longOpt("r2").hasArg().desc("File with the second reads of pairs").build())
+            .addOption("s", "skip-invalid", false, "Skip invalid records instead of stopping")
+            .addOption("q", "quality", true, "Minimal Phred quality to trim fastq reads by")
+            .addOption("c", "min-count", true, "Minimal number of occurrences of assembled k-mers")
+            .addOption(Option.builder().longOpt("canonical").desc("Merge k-mers with reverse complements").build())
+            .addOption("m", "max-memory", true, "Memory to build graph in, e.g. 512m or 4g")
+            .addOption(Option.builder().longOpt("simplify").desc("Remove tips and bubbles before traversal").build())
+            .addOption(Option.builder().longOpt("checkpoint-dir").hasArg().desc("Directory to save completed stages to")
+                    .build())
+            .addOption(Option.builder().longOpt("resume").desc("Restart from the latest saved stage").build());
 
     public static void main(final String... args) {
         try {
@@ -95,7 +128,7 @@ public class CliHandler {
                     Case($Left($()), messages -> run(() -> messages.forEach(System.out::println))),
                     Case($Right($()), API::run)
             );
-        } catch (final ParseException exp) {
+        } catch (final ParseException | InvalidRecord exp) {
             System.out.println(exp.getMessage());
         }
     }
@@ -123,16 +156,34 @@ public class CliHandler {
 
         final String k = line.getOptionValue("k");
         final String format = line.getOptionValue("format");
+        final String threads = line.getOptionValue("threads");
+        final String top = line.getOptionValue("top");
+        final String quality = line.getOptionValue("quality");
+        final String minCount = line.getOptionValue("min-count");
+        final String maxMemory = line.getOptionValue("max-memory");
+        final ErrorPolicy policy = line.hasOption("skip-invalid") ? ErrorPolicy.SKIP : ErrorPolicy.FAIL_FAST;
+        final boolean canonical = line.hasOption("canonical");
+        final boolean simplify = line.hasOption("simplify");
+        final String checkpointDir = line.getOptionValue("checkpoint-dir");
+        final boolean resume = line.hasOption("resume");
+        final Seq<String> inputs = List.of("input", "r1", "r2")
+                .filter(line::hasOption)
+                .flatMap(option -> List.of(line.getOptionValues(option)));
         final Validation<Seq<Exception>, Assembler> validation;
-        if (line.hasOption("input") && line.hasOption("output")) {
-            validation = validateFromFileToFile(
-                    line.getOptionValue("input"), line.getOptionValue("output"), k, format);
-        } else if (line.hasOption("input")) {
-            validation = validateFromFileToStd(line.getOptionValue("input"), k, format);
+        if (!inputs.isEmpty() && line.hasOption("output")) {
+            final String output = line.getOptionValue("output");
+            validation = validateFromFileToFile(inputs, output, k, format, threads, top, quality, minCount, maxMemory,
+                    checkpointDir, policy, canonical, simplify, resume);
+        } else if (!inputs.isEmpty()) {
+            validation = validateFromFileToStd(inputs, k, format, threads, top, quality, minCount, maxMemory,
+                    checkpointDir, policy, canonical, simplify, resume);
         } else if (line.hasOption("output")) {
-            validation = validateFromStdToFile(line.getOptionValue("output"), k, format);
+            final String output = line.getOptionValue("output");
+            validation = validateFromStdToFile(output, k, format, threads, top, quality, minCount, maxMemory,
+                    checkpointDir, policy, canonical, simplify, resume);
         } else {
-            validation = validateFromStdToStd(k, format);
+            validation = validateFromStdToStd(k, format, threads, top, quality, minCount, maxMemory,
+                    checkpointDir, policy, canonical, simplify, resume);
         }
 
         return validation.toEither().map(assembler -> assembler::assemble);
@@ -141,90 +192,207 @@ public class CliHandler {
     /**
      * Validation function for file to file scenario.
      *
-     * @param input       Path to input file in string form.
-     * @param output      Path to output file in string form.
-     * @param kValue      Kmer's length in string form.
-     * @param formatValue Format of input data.
+     * @param inputs          Paths to input files in string form.
+     * @param output          Path to output file in string form.
+     * @param kValue          Kmer's length in string form.
+     * @param formatValue     Format of input data.
+     * @param threadsValue    Number of threads in string form.
+     * @param topValue        Number of the longest contigs in string form.
+     * @param qualityValue    Minimal quality of bases in string form.
+     * @param countValue      Minimal number of times a k-mer is seen in string form.
+     * @param memoryValue     Memory for graph construction in string form.
+     * @param checkpointValue Directory to save outputs of stages to in string form.
+     * @param policy          Strategy for invalid records.
+     * @param canonical       Whether k-mers are merged with their reverse complements.
+     * @param simplify        Whether tips and bubbles are removed from graph.
+     * @param resume          Whether the latest saved stage is restored.
      * @return object of {@link Assembler}.
      */
     public static Validation<Seq<Exception>, Assembler> validateFromFileToFile(
-            final String input,
+            final Seq<String> inputs,
             final String output,
             final String kValue,
-            final String formatValue) {
-        return combine(
-                validateInputPath(input),
+            final String formatValue,
+            final String threadsValue,
+            final String topValue,
+            final String qualityValue,
+            final String countValue,
+            final String memoryValue,
+            final String checkpointValue,
+            final ErrorPolicy policy,
+            final boolean canonical,
+            final boolean simplify,
+            final boolean resume) {
+        return validateCheckpointDir(checkpointValue, resume).ap(validateMaxMemory(memoryValue).ap(combine(
+                validateInputPaths(inputs),
                 validateOutputPath(output),
                 validateK(kValue),
-                validateFormat(formatValue)
-        ).ap((source, target, k, format) -> {
-            final Stream<String> reads = new FileReader<>(source, format.parser).read().map(HasSequence::sequence);
-            final Writer<Record> writer = new FileWriter<>(target, Fasta.parser());
-            return new Assembler(reads, writer::write, k);
-        });
+                validateFormat(formatValue),
+                validateThreads(threadsValue),
+                validateTop(topValue),
+                validateQuality(qualityValue),
+                validateMinCount(countValue)
+        ).<Function<Long, Function<Path, Assembler>>>ap((sources, target, k, format, threads, top, quality, minCount) ->
+                maxMemory -> checkpointDir -> {
+                    final Stream<CharSequence> reads = read(sources, format, policy, new Trimmer(quality), threads);
+                    final Writer<Record> writer = new FileWriter<>(target, Fasta.parser());
+                    final Source input = new Source(sources.toJavaList(), format.name(), quality, policy);
+                    return new Assembler(reads, writer::write, k, threads, top, minCount, canonical, maxMemory,
+                            simplify, checkpointDir, resume, input);
+                })));
     }
 
     /**
      * Validation function for file to stdout scenario.
      *
-     * @param input         Path to input file in string form.
-     * @param kValue        Kmer's length in string form.
-     * @param formatValue   Format of input data.
+     * @param inputs          Paths to input files in string form.
+     * @param kValue          Kmer's length in string form.
+     * @param formatValue     Format of input data.
+     * @param threadsValue    Number of threads in string form.
+     * @param topValue        Number of the longest contigs in string form.
+     * @param qualityValue    Minimal quality of bases in string form.
+     * @param countValue      Minimal number of times a k-mer is seen in string form.
+     * @param memoryValue     Memory for graph construction in string form.
+     * @param checkpointValue Directory to save outputs of stages to in string form.
+     * @param policy          Strategy for invalid records.
+     * @param canonical       Whether k-mers are merged with their reverse complements.
+     * @param simplify        Whether tips and bubbles are removed from graph.
+     * @param resume          Whether the latest saved stage is restored.
      * @return object of {@link Assembler}.
      */
 
     public static Validation<Seq<Exception>, Assembler> validateFromFileToStd(
-            final String input,
+            final Seq<String> inputs,
             final String kValue,
-            final String formatValue) {
-        return combine(
-                validateInputPath(input),
+            final String formatValue,
+            final String threadsValue,
+            final String topValue,
+            final String qualityValue,
+            final String countValue,
+            final String memoryValue,
+            final String checkpointValue,
+            final ErrorPolicy policy,
+            final boolean canonical,
+            final boolean simplify,
+            final boolean resume) {
+        return validateCheckpointDir(checkpointValue, resume).ap(combine(
+                validateInputPaths(inputs),
                 validateK(kValue),
-                validateFormat(formatValue)
-        ).ap((source, k, format) -> {
-            final Stream<String> reads = new FileReader<>(source, format.parser).read().map(HasSequence::sequence);
-            final Writer<Record> writer = new StdOutWriter<>(Fasta.parser());
-            return new Assembler(reads, writer::write, k);
-        });
+                validateFormat(formatValue),
+                validateThreads(threadsValue),
+                validateTop(topValue),
+                validateQuality(qualityValue),
+                validateMinCount(countValue),
+                validateMaxMemory(memoryValue)
+        ).<Function<Path, Assembler>>ap((sources, k, format, threads, top, quality, minCount, maxMemory) ->
+                checkpointDir -> {
+                    final Stream<CharSequence> reads = read(sources, format, policy, new Trimmer(quality), threads);
+                    final Writer<Record> writer = new StdOutWriter<>(Fasta.parser());
+                    final Source input = new Source(sources.toJavaList(), format.name(), quality, policy);
+                    return new Assembler(reads, writer::write, k, threads, top, minCount, canonical, maxMemory,
+                            simplify, checkpointDir, resume, input);
+                }));
     }
 
     /**
      * Validation function for stdin to file scenario.
      *
-     * @param output        Path to output file in string form.
-     * @param kValue        Kmer's length in string form.
-     * @param formatValue   Format of input data.
+     * @param output          Path to output file in string form.
+     * @param kValue          Kmer's length in string form.
+     * @param formatValue     Format of input data.
+     * @param threadsValue    Number of threads in string form.
+     * @param topValue        Number of the longest contigs in string form.
+     * @param qualityValue    Minimal quality of bases in string form.
+     * @param countValue      Minimal number of times a k-mer is seen in string form.
+     * @param memoryValue     Memory for graph construction in string form.
+     * @param checkpointValue Directory to save outputs of stages to in string form.
+     * @param policy          Strategy for invalid records.
+     * @param canonical       Whether k-mers are merged with their reverse complements.
+     * @param simplify        Whether tips and bubbles are removed from graph.
+     * @param resume          Whether the latest saved stage is restored.
      * @return object of {@link Assembler}.
      */
     public static Validation<Seq<Exception>, Assembler> validateFromStdToFile(
             final String output,
             final String kValue,
-            final String formatValue) {
-        return combine(
+            final String formatValue,
+            final String threadsValue,
+            final String topValue,
+            final String qualityValue,
+            final String countValue,
+            final String memoryValue,
+            final String checkpointValue,
+            final ErrorPolicy policy,
+            final boolean canonical,
+            final boolean simplify,
+            final boolean resume) {
+        return validateCheckpointDir(checkpointValue, resume).ap(combine(
                 validateOutputPath(output),
                 validateK(kValue),
-                validateFormat(formatValue)
-        ).ap((target, k, format) -> {
-            final Stream<String> reads = new StdInReader<>(format.parser).read().map(HasSequence::sequence);
-            final Writer<Record> writer = new FileWriter<>(target, Fasta.parser());
-            return new Assembler(reads, writer::write, k);
-        });
+                validateFormat(formatValue),
+                validateThreads(threadsValue),
+                validateTop(topValue),
+                validateQuality(qualityValue),
+                validateMinCount(countValue),
+                validateMaxMemory(memoryValue)
+        ).<Function<Path, Assembler>>ap((target, k, format, threads, top, quality, minCount, maxMemory) ->
+                checkpointDir -> {
+                    final Trimmer trimmer = new Trimmer(quality);
+                    final Stream<CharSequence> reads = new StdInReader<>(format.parser, policy).read()
+                            .map(trimmer::trim);
+                    final Writer<Record> writer = new FileWriter<>(target, Fasta.parser());
+                    final Source input = new Source(Collections.emptyList(), format.name(), quality, policy);
+                    return new Assembler(reads, writer::write, k, threads, top, minCount, canonical, maxMemory,
+                            simplify, checkpointDir, resume, input);
+                }));
     }
 
     /**
      * Validation function for stdin to stdout scenario.
      *
-     * @param kValue        Kmer's length in string form.
-     * @param formatValue   Format of input data.
+     * @param kValue          Kmer's length in string form.
+     * @param formatValue     Format of input data.
+     * @param threadsValue    Number of threads in string form.
+     * @param topValue        Number of the longest contigs in string form.
+     * @param qualityValue    Minimal quality of bases in string form.
+     * @param countValue      Minimal number of times a k-mer is seen in string form.
+     * @param memoryValue     Memory for graph construction in string form.
+     * @param checkpointValue Directory to save outputs of stages to in string form.
+     * @param policy          Strategy for invalid records.
+     * @param canonical       Whether k-mers are merged with their reverse complements.
+     * @param simplify        Whether tips and bubbles are removed from graph.
+     * @param resume          Whether the latest saved stage is restored.
      * @return object of {@link Assembler}.
      */
     public static Validation<Seq<Exception>, Assembler> validateFromStdToStd(
             final String kValue,
-            final String formatValue) {
-        return combine(validateK(kValue), validateFormat(formatValue)).ap((k, format) -> {
-            final Stream<String> reads = new StdInReader<>(format.parser).read().map(HasSequence::sequence);
+            final String formatValue,
+            final String threadsValue,
+            final String topValue,
+            final String qualityValue,
+            final String countValue,
+            final String memoryValue,
+            final String checkpointValue,
+            final ErrorPolicy policy,
+            final boolean canonical,
+            final boolean simplify,
+            final boolean resume) {
+        return combine(
+                validateK(kValue),
+                validateFormat(formatValue),
+                validateThreads(threadsValue),
+                validateTop(topValue),
+                validateQuality(qualityValue),
+                validateMinCount(countValue),
+                validateMaxMemory(memoryValue),
+                validateCheckpointDir(checkpointValue, resume)
+        ).ap((k, format, threads, top, quality, minCount, maxMemory, checkpointDir) -> {
+            final Trimmer trimmer = new Trimmer(quality);
+            final Stream<CharSequence> reads = new StdInReader<>(format.parser, policy).read().map(trimmer::trim);
             final Writer<Record> writer = new StdOutWriter<>(Fasta.parser());
-            return new Assembler(reads, writer::write, k);
+            final Source input = new Source(Collections.emptyList(), format.name(), quality, policy);
+            return new Assembler(reads, writer::write, k, threads, top, minCount, canonical, maxMemory, simplify,
+                    checkpointDir, resume, input);
         });
     }
 
@@ -246,6 +414,20 @@ public class CliHandler {
         );
     }
 
+    /**
+     * Function for validating several input paths.
+     *
+     * @param paths Paths to input files in string form.
+     * @return Exception of the first incorrect input file or correct paths to files.
+     */
+    public static Validation<Exception, Seq<Path>> validateInputPaths(final Seq<String> paths) {
+        final Seq<Validation<Exception, Path>> validations = paths.map(CliHandler::validateInputPath);
+        return validations
+                .find(Validation::isInvalid)
+                .<Validation<Exception, Seq<Path>>>map(verdict -> invalid(verdict.getError()))
+                .getOrElse(() -> valid(validations.map(Validation::get)));
+    }
+
     /**
      * Function for validating output path.
      *
@@ -288,6 +470,121 @@ public class CliHandler {
                 : Try.of(() -> Format.valueOf(format.toUpperCase())).toValid(new InvalidFormat(format));
     }
 
+    /**
+     * Function for validating number of threads.
+     *
+     * @param threads Number of threads in string form, one thread is used if it's absent.
+     * @return Exception if number of threads isn't a positive integer or number of threads.
+     */
+    public static Validation<Exception, Integer> validateThreads(final String threads) {
+        return threads == null
+                ? valid(1)
+                : Try.of(() -> Integer.parseInt(threads)).filter(n -> n > 0).toValid(new InvalidThreads(threads));
+    }
+
+    /**
+     * Function for validating number of the longest contigs to write.
+     *
+     * @param top Number of contigs in string form, all contigs are written if it's absent.
+     * @return Exception if number of contigs isn't a positive integer or number of contigs.
+     */
+    public static Validation<Exception, Integer> validateTop(final String top) {
+        return top == null
+                ? valid(0)
+                : Try.of(() -> Integer.parseInt(top)).filter(n -> n > 0).toValid(new InvalidTop(top));
+    }
+
+    /**
+     * Function for validating minimal quality of bases.
+     *
+     * @param quality Minimal Phred quality in string form, reads aren't trimmed if it's absent.
+     * @return Exception if quality isn't a non-negative integer or quality.
+     */
+    public static Validation<Exception, Integer> validateQuality(final String quality) {
+        return quality == null
+                ? valid(0)
+                : Try.of(() -> Integer.parseInt(quality)).filter(n -> n >= 0).toValid(new InvalidQuality(quality));
+    }
+
+    /**
+     * Function for validating minimal number of times a k-mer is seen.
+     *
+     * @param count Number of times in string form, every k-mer is assembled if it's absent.
+     * @return Exception if number of times isn't a positive integer or number of times.
+     */
+    public static Validation<Exception, Integer> validateMinCount(final String count) {
+        return count == null
+                ? valid(1)
+                : Try.of(() -> Integer.parseInt(count)).filter(n -> n > 0).toValid(new InvalidMinCount(count));
+    }
+
+    /**
+     * Function for validating memory for graph construction.
+     *
+     * @param memory Number of bytes in string form, may end with k, m or g, graph is built in memory if it's absent.
+     * @return Exception if memory isn't a positive size or number of bytes.
+     */
+    public static Validation<Exception, Long> validateMaxMemory(final String memory) {
+        return memory == null
+                ? valid(0L)
+                : Try.of(() -> bytes(memory)).filter(n -> n > 0).toValid(new InvalidMaxMemory(memory));
+    }
+
+    /**
+     * Function for validating directory to save outputs of stages to.
+     *
+     * @param directory Path to directory in string form, stages aren't saved if it's absent.
+     * @param resume    Whether the latest saved stage is restored, the directory is required then.
+     * @return Exception if path isn't a writable directory or correct path to directory, possibly absent.
+     */
+    public static Validation<Exception, Path> validateCheckpointDir(final String directory, final boolean resume) {
+        if (directory == null) {
+            return resume ? invalid(new NoCheckpointDir()) : valid(null);
+        }
+        final Predicate<File> readOnly = file -> file.exists() && !Files.isWritable(file.toPath());
+        return Match(Paths.get(directory).toFile()).of(
+                Case($(File::isFile), () -> invalid(new PathIsNotDirectory(Paths.get(directory)))),
+                Case($(readOnly), () -> invalid(new FileIsNotWritable(Paths.get(directory)))),
+                Case($(), file -> valid(file.toPath()))
+        );
+    }
+
+    private static long bytes(final String memory) {
+        final int unit = "kmg".indexOf(Character.toLowerCase(memory.charAt(memory.length() - 1))) + 1;
+        final String number = unit > 0 ? memory.substring(0, memory.length() - 1) : memory;
+        return Math.multiplyExact(Long.parseLong(number), 1L << (10 * unit));
+    }
+
+    private static Stream<CharSequence> read(
+            final Seq<Path> sources,
+            final Format format,
+            final ErrorPolicy policy,
+            final Trimmer trimmer,
+            final int threads) {
+        if (sources.size() > 1) {
+            final Seq<Stream<CharSequence>> reads = sources.map(source -> read(source, format, policy, trimmer, 1));
+            return threads > 1 ? Streams.merge(reads.asJava()) : reads.reduce(Stream::concat);
+        }
+        return read(sources.head(), format, policy, trimmer, threads);
+    }
+
+    private static Stream<CharSequence> read(
+            final Path source,
+            final Format format,
+            final ErrorPolicy policy,
+            final Trimmer trimmer,
+            final int threads) {
+        try {
+            if (Compression.of(source) != Compression.NONE) {
+                return new FileReader<>(source, format.parser, policy, threads).read().map(trimmer::trim);
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Can't read " + source, e);
+        }
+        final Stream<CharSequence> reads = new ChannelReader<>(source, format.parser, policy, trimmer).read();
+        return threads > 1 ? reads.parallel() : reads;
+    }
+
     private static String printHelp(final Options options) {
         final String commandLineSyntax = "java metamer.jar";
         final StringWriter stringWriter = new StringWriter();
@@ -0,0 +1,70 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.cmdparser.exception;
+
+import java.util.Objects;
+
+/**
+ * Throws exception if memory for graph construction is invalid.
+ */
+public class InvalidMaxMemory extends Exception {
+    private final String memory;
+
+    /**
+     * Constructor - initialize memory field.
+     *
+     * @param memory Memory for graph construction
+     */
+    public InvalidMaxMemory(final String memory) {
+        super("Provided maximal memory is invalid, a positive size like 512m or 4g is expected: " + memory);
+        this.memory = memory;
+    }
+
+    /**
+     * Get memory field.
+     *
+     * @return Memory for graph construction
+     */
+    public String memory() {
+        return this.memory;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        InvalidMaxMemory that = (InvalidMaxMemory) o;
+        return Objects.equals(memory, that.memory);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(memory);
+    }
+}
@@ -36,6 +36,11 @@ import metamer.cmdparser.exception.FileIsNotWritable;
 import metamer.cmdparser.exception.FileIsNotReadable;
 import metamer.cmdparser.exception.FileAlreadyExists;
 import metamer.cmdparser.exception.InvalidLength;
+import metamer.cmdparser.exception.InvalidThreads;
+import metamer.cmdparser.exception.InvalidTop;
+import metamer.cmdparser.exception.InvalidQuality;
+import metamer.cmdparser.exception.InvalidMinCount;
+import metamer.cmdparser.exception.InvalidMaxMemory;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -128,6 +133,41 @@ class CliHandlerTest {
         assertThat(verdict, is(invalid(new InvalidLength("abc"))));
     }
 
+    @Test
+    @DisplayName("number of threads should be invalid when key's -t argument is not positive")
+    public void invalidThreadsTest() {
+        final Validation<Exception, Integer> verdict = CliHandler.validateThreads("0");
+        assertThat(verdict, is(invalid(new InvalidThreads("0"))));
+    }
+
+    @Test
+    @DisplayName("number of contigs should be invalid when key's -n argument is not positive")
+    public void invalidTopTest() {
+        final Validation<Exception, Integer> verdict = CliHandler.validateTop("0");
+        assertThat(verdict, is(invalid(new InvalidTop("0"))));
+    }
+
+    @Test
+    @DisplayName("quality should be invalid when key's -q argument is negative")
+    public void invalidQualityTest() {
+        final Validation<Exception, Integer> verdict = CliHandler.validateQuality("-1");
+        assertThat(verdict, is(invalid(new InvalidQuality("-1"))));
+    }
+
+    @Test
+    @DisplayName("minimal count should be invalid when key's -c argument is not positive")
+    public void invalidMinCountTest() {
+        final Validation<Exception, Integer> verdict = CliHandler.validateMinCount("0");
+        assertThat(verdict, is(invalid(new InvalidMinCount("0"))));
+    }
+
+    @Test
+    @DisplayName("memory should be invalid when key's -m argument is not a size")
+    public void invalidMaxMemoryTest() {
+        final Validation<Exception, Long> verdict = CliHandler.validateMaxMemory("12x");
+        assertThat(verdict, is(invalid(new InvalidMaxMemory("12x"))));
+    }
+
     @Test
     @DisplayName("message should be shown when key's -f argument is not fasta or fastq")
     public void invalidFormatTest() {
@@ -44,6 +44,7 @@ import java.nio.file.attribute.AclFileAttributeView;
 import java.nio.file.attribute.AclEntry;
 import java.nio.file.attribute.AclEntryType;
 import java.nio.file.attribute.AclEntryPermission;
+import java.nio.file.attribute.FileTime;
 import java.nio.file.attribute.UserPrincipal;
 
 import io.vavr.collection.Seq;
@@ -55,6 +56,8 @@ import metamer.cmdparser.exception.PathIsDirectory;
 import metamer.cmdparser.exception.NonexistentFile;
 import metamer.cmdparser.exception.NoLength;
 import metamer.cmdparser.exception.NoFormat;
+import metamer.cmdparser.exception.NoCheckpointDir;
+import metamer.cmdparser.exception.PathIsNotDirectory;
 import metamer.cmdparser.exception.FileIsNotWritable;
 import metamer.cmdparser.exception.FileIsNotReadable;
 import metamer.cmdparser.exception.FileAlreadyExists;
@@ -66,21 +69,39 @@ import static metamer.functional.tests.Utils.temporaryFile;
 import static metamer.utils.Strings.multiline;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.io.FileMatchers.anExistingFile;
 
 public class FunctionalTest {
     private final static PrintStream standardOut = System.out;
     private final static InputStream standardIn = System.in;
+    private final static FileTime SAVED = FileTime.fromMillis(0);
     private final OutputStream testOut = new ByteArrayOutputStream();
     private final String newLine = System.lineSeparator();
     private final String usage = multiline(
-            "usage: java metamer.jar [-f <arg>] [-h] [-i <arg>] [-k <arg>] [-o <arg>]",
-            "   -f,--format <arg>     Format of input data: fasta or fastq",
-            "   -h,--help             Present help",
-            "   -i,--input <arg>      Input file with reads to be analyzed",
-            "   -k <arg>              Length of k mer in De Bruijn graph",
-            "   -o,--output <arg>     Output file to write result to",
+            "usage: java metamer.jar [-c <arg>] [--canonical] [--checkpoint-dir <arg>] [-f",
+            "       <arg>] [-h] [-i <arg>] [-k <arg>] [-m <arg>] [-n <arg>] [-o <arg>] [-q",
+            "       <arg>] [--r1 <arg>] [--r2 <arg>] [--resume] [-s] [--simplify] [-t <arg>]",
+            "   -c,--min-count <arg>          Minimal number of occurrences of assembled",
+            "                                 k-mers",
+            "      --canonical                Merge k-mers with reverse complements",
+            "      --checkpoint-dir <arg>     Directory to save completed stages to",
+            "   -f,--format <arg>             Format of input data: fasta or fastq",
+            "   -h,--help                     Present help",
+            "   -i,--input <arg>              Input file with reads, may be repeated",
+            "   -k <arg>                      Length of k mer in De Bruijn graph",
+            "   -m,--max-memory <arg>         Memory to build graph in, e.g. 512m or 4g",
+            "   -n,--top <arg>                Number of the longest contigs to write",
+            "   -o,--output <arg>             Output file to write result to",
+            "   -q,--quality <arg>            Minimal Phred quality to trim fastq reads by",
+            "      --r1 <arg>                 File with the first reads of pairs",
+            "      --r2 <arg>                 File with the second reads of pairs",
+            "      --resume                   Restart from the latest saved stage",
+            "   -s,--skip-invalid             Skip invalid records instead of stopping",
+            "      --simplify                 Remove tips and bubbles before traversal",
+            "   -t,--threads <arg>            Number of threads to build graph with",
             "--- HELP ---" + newLine);
     private final String content = multiline(
             ">id0 test",
@@ -268,7 +289,7 @@ public class FunctionalTest {
         final Path outputPath = temporaryPath("out", ".fasta");
 
         final String expected1 = ">seq1";
-        final String expected2 = "ATGGCGTGCGTGGCD";
+        final String expected2 = "ATGGCGTGCD";
 
         CliHandler.main("-k", "4", "-format", "fasta", "-i", inputPath.toString(), "-o", outputPath.toString());
 
@@ -276,6 +297,141 @@ public class FunctionalTest {
         assertThat(Files.lines(outputPath).collect(toList()).toString(), containsString(expected2));
     }
 
+    @Test
+    @DisplayName("message should be shown when resume is requested without checkpoint directory")
+    public void resumeWithoutCheckpointDirTest() throws ParseException {
+        final String[] args = new String[] {"-k", "3", "-format", "fasta", "--resume"};
+
+        final Seq<Exception> expectedSeq = List.of(new NoCheckpointDir());
+        assertThat(CliHandler.parse(args), is(Either.left(expectedSeq)));
+    }
+
+    @Test
+    @DisplayName("checkpoint directory should be invalid if it is a file")
+    public void fileAsCheckpointDirTest() throws IOException, ParseException {
+        final Path checkpointPath = temporaryFile("checkpoints", ".bin");
+        final String[] args = new String[] {"-k", "3", "-format", "fasta", "--checkpoint-dir",
+                checkpointPath.toString()};
+
+        final Seq<Exception> expectedSeq = List.of(new PathIsNotDirectory(checkpointPath));
+        assertThat(CliHandler.parse(args), is(Either.left(expectedSeq)));
+    }
+
+    @Test
+    @DisplayName("contigs should be restored from checkpoints when assembly is resumed")
+    public void resumeFromCheckpointsTest() throws IOException {
+        final Path checkpointPath = temporaryDirectory("checkpoints");
+        final Path inputPath = temporaryFile("inp", ".fasta");
+        Files.write(inputPath, content.getBytes());
+        final Path firstOutput = temporaryPath("out", ".fasta");
+        final Path secondOutput = temporaryPath("out", ".fasta");
+
+        CliHandler.main("-k", "4", "-format", "fasta", "-i", inputPath.toString(), "-o", firstOutput.toString(),
+                "--checkpoint-dir", checkpointPath.toString());
+        for (final String stage : new String[] {"manifest.txt", "reads.txt", "graph.bin", "unitigs.bin"}) {
+            assertThat(checkpointPath.resolve(stage).toFile(), anExistingFile());
+            checkpointPath.resolve(stage).toFile().deleteOnExit();
+        }
+        final Path unitigsPath = checkpointPath.resolve("unitigs.bin");
+        Files.setLastModifiedTime(unitigsPath, SAVED);
+
+        CliHandler.main("-k", "4", "-format", "fasta", "-i", inputPath.toString(), "-o", secondOutput.toString(),
+                "--checkpoint-dir", checkpointPath.toString(), "--resume");
+        assertThat(Files.getLastModifiedTime(unitigsPath), is(SAVED));
+        assertThat(Files.readAllLines(secondOutput), is(Files.readAllLines(firstOutput)));
+        assertThat(Files.lines(secondOutput).collect(toList()).toString(), containsString("ATGGCGTGCD"));
+    }
+
+    @Test
+    @DisplayName("checkpoints should be rebuilt when assembly is resumed with changed input")
+    public void resumeWithChangedInputTest() throws IOException {
+        final Path checkpointPath = temporaryDirectory("checkpoints");
+        final Path inputPath = temporaryFile("inp", ".fasta");
+        Files.write(inputPath, content.getBytes());
+        final Path firstOutput = temporaryPath("out", ".fasta");
+        final Path secondOutput = temporaryPath("out", ".fasta");
+
+        CliHandler.main("-k", "4", "-format", "fasta", "-i", inputPath.toString(), "-o", firstOutput.toString(),
+                "--checkpoint-dir", checkpointPath.toString());
+        for (final String stage : new String[] {"manifest.txt", "reads.txt", "graph.bin", "unitigs.bin"}) {
+            checkpointPath.resolve(stage).toFile().deleteOnExit();
+        }
+        final Path graphPath = checkpointPath.resolve("graph.bin");
+        Files.setLastModifiedTime(graphPath, SAVED);
+        Files.write(inputPath, multiline(">id1", "GACTTACCAG").getBytes());
+
+        CliHandler.main("-k", "4", "-format", "fasta", "-i", inputPath.toString(), "-o", secondOutput.toString(),
+                "--checkpoint-dir", checkpointPath.toString(), "--resume");
+        assertThat(Files.getLastModifiedTime(graphPath), is(not(SAVED)));
+        final String contigs = Files.lines(secondOutput).collect(toList()).toString();
+        assertThat(contigs, containsString("GACTTACCAG"));
+        assertThat(contigs, not(containsString("ATGGCGTGCD")));
+    }
+
+    @Test
+    @DisplayName("checkpoints should be rebuilt when assembly is resumed with changed minimal count")
+    public void resumeWithChangedMinCountTest() throws IOException {
+        final Path checkpointPath = temporaryDirectory("checkpoints");
+        final Path inputPath = temporaryFile("inp", ".fasta");
+        Files.write(inputPath, content.getBytes());
+        final Path firstOutput = temporaryPath("out", ".fasta");
+        final Path secondOutput = temporaryPath("out", ".fasta");
+
+        CliHandler.main("-k", "4", "-format", "fasta", "-i", inputPath.toString(), "-o", firstOutput.toString(),
+                "--checkpoint-dir", checkpointPath.toString());
+        for (final String stage : new String[] {"manifest.txt", "reads.txt", "graph.bin", "unitigs.bin"}) {
+            checkpointPath.resolve(stage).toFile().deleteOnExit();
+        }
+        final Path graphPath = checkpointPath.resolve("graph.bin");
+        Files.setLastModifiedTime(graphPath, SAVED);
+
+        CliHandler.main("-k", "4", "-format", "fasta", "-c", "2", "-i", inputPath.toString(), "-o",
+                secondOutput.toString(), "--checkpoint-dir", checkpointPath.toString(), "--resume");
+        assertThat(Files.getLastModifiedTime(graphPath), is(not(SAVED)));
+        assertThat(Files.readAllLines(checkpointPath.resolve("manifest.txt")), hasItem("min-count=2"));
+    }
+
+    @Test
+    @DisplayName("damaged checkpoint should be rebuilt when assembly is resumed")
+    public void resumeFromDamagedCheckpointTest() throws IOException {
+        final Path checkpointPath = temporaryDirectory("checkpoints");
+        final Path inputPath = temporaryFile("inp", ".fasta");
+        Files.write(inputPath, content.getBytes());
+        final Path firstOutput = temporaryPath("out", ".fasta");
+        final Path secondOutput = temporaryPath("out", ".fasta");
+
+        CliHandler.main("-k", "4", "-format", "fasta", "-i", inputPath.toString(), "-o", firstOutput.toString(),
+                "--checkpoint-dir", checkpointPath.toString());
+        for (final String stage : new String[] {"manifest.txt", "reads.txt", "graph.bin", "unitigs.bin"}) {
+            checkpointPath.resolve(stage).toFile().deleteOnExit();
+        }
+        final Path graphPath = checkpointPath.resolve("graph.bin");
+        final byte[] saved = Files.readAllBytes(graphPath);
+        final byte[] damaged = saved.clone();
+        damaged[damaged.length / 2] ^= 1;
+        Files.write(graphPath, damaged);
+        Files.delete(checkpointPath.resolve("unitigs.bin"));
+
+        CliHandler.main("-k", "4", "-format", "fasta", "-i", inputPath.toString(), "-o", secondOutput.toString(),
+                "--checkpoint-dir", checkpointPath.toString(), "--resume");
+        assertThat(Files.readAllBytes(graphPath), is(saved));
+        assertThat(Files.readAllLines(secondOutput), is(Files.readAllLines(firstOutput)));
+    }
+
+    @Test
+    @DisplayName("stdout should contain contigs of every input file when several input files are given")
+    public void severalInputsTest() throws IOException {
+        final Path firstPath = temporaryFile("inp", ".fasta");
+        Files.write(firstPath, content.getBytes());
+        final Path secondPath = temporaryFile("inp", ".fasta");
+        Files.write(secondPath, multiline(">id1", "GACTTACCAG").getBytes());
+
+        CliHandler.main("-k", "4", "-format", "fasta", "-t", "2", "-i", firstPath.toString(), "--r2",
+                secondPath.toString());
+        assertThat(testOut.toString(), containsString("ATGGCGTGCD"));
+        assertThat(testOut.toString(), containsString("GACTTACCAG"));
+    }
+
     @Test
     @DisplayName("stdout should contain expected string when there is no output file")
     public void writeInStdoutTest() throws IOException {
@@ -283,7 +439,7 @@ public class FunctionalTest {
         Files.write(inputPath, content.getBytes());
 
         final String expected1 = ">seq";
-        final String expected2 = "ATGGCGTGCGTGGCD";
+        final String expected2 = "ATGGCGTGCD";
 
         CliHandler.main("-k", "4", "-format", "fasta", "-i", inputPath.toString());
         assertThat(testOut.toString(), containsString(expected1));
@@ -296,7 +452,7 @@ public class FunctionalTest {
         final Path outputPath = temporaryPath("out", ".fasta");
 
         final String expected1 = ">seq";
-        final String expected2 = "ATGGCGTGCGTGGCD";
+        final String expected2 = "ATGGCGTGCD";
 
         CliHandler.main("-k", "4", "-format", "fasta", "-o", outputPath.toString());
         assertThat(outputPath.toFile(), anExistingFile());
@@ -307,7 +463,7 @@ public class FunctionalTest {
     @DisplayName("stdin should be source & stdout should contain result when there is no input & output files")
     public void readingFromStdinWriteInStdoutTest() {
         final String expected1 = ">seq";
-        final String expected2 = "ATGGCGTGCGTGGCD";
+        final String expected2 = "ATGGCGTGCD";
 
         CliHandler.main("-k", "4", "-format", "fasta");
         assertThat(testOut.toString(), containsString(expected1));
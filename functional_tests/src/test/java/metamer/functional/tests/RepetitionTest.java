@@ -114,11 +114,8 @@ public class RepetitionTest {
         Files.write(inputPath, rhyme.getBytes(), StandardOpenOption.APPEND);
         final Path outputPath = temporaryPath("out", "fasta");
 
-        final String expected2 = "START I know an old lady who swallowed a cowI don't know how she swallowed the s,"
-                + " pider to catch the spiderThat wriggled and jiggled and tickled inside herShe swa, llowed that "
-                + "flyPerhaps she'll dieI know an old lady who swallowed a goatOpened h, er throat and down went the "
-                + "goat!She swallowed a flyI don't know why she swallow, ed a spiderThat wriggled"
-                + " and jiggled and tickled inside herShe swallowed";
+        final String expected2 = "I know an old lady who swallowed a spiderThat wriggled and jiggled and tickled i, "
+                + "nside herShe swallowed a cowI don't know how she swallowed ";
 
         CliHandler.main("-k", "15", "-format", "fasta", "-i", inputPath.toString(), "-o", outputPath.toString());
         assertThat(Files.lines(outputPath).collect(toList()).toString(), containsString(expected2));
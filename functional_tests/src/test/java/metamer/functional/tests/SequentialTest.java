@@ -70,7 +70,7 @@ public class SequentialTest {
 
         final Path outputPath = temporaryPath("out", "fasta");
 
-        final String expected = ">seq1 Люблю я в полдень воспаленный"
+        final String expected = ">seq1 coverage=1.0 Люблю я в полдень воспаленный"
                 + "Прохладу черпать из ручья"
                 + "И в роще тихой, отдаленной"
                 + "Смотреть, как плещет в брег струя."
@@ -0,0 +1,73 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.utils;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Realization of "lazy parsing" strategy for records of a fixed number of elements.
+ * <p>
+ * Elements are grouped by {@code size} regardless of their content, the last group may be shorter.
+ *
+ * @param <T> Type of elements.
+ */
+public class Groups<T> implements Iterator<List<T>> {
+    private final Iterator<T> downstream;
+    private final int size;
+
+    /**
+     * Constructor - initializing fields.
+     *
+     * @param downstream Next iterator from stream.
+     * @param size       Number of elements in every group.
+     */
+    Groups(final Iterator<T> downstream, final int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Group should have at least one element, but size is " + size);
+        }
+        this.downstream = downstream;
+        this.size = size;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return downstream.hasNext();
+    }
+
+    @Override
+    public List<T> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final List<T> group = new ArrayList<>(size);
+        while (group.size() < size && downstream.hasNext()) {
+            group.add(downstream.next());
+        }
+        return group;
+    }
+}
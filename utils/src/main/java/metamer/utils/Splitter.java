@@ -45,4 +45,15 @@ public interface Splitter<T> extends Function<Iterator<T>, Iterator<List<T>>> {
     static <T> Splitter<T> splitBefore(final Predicate<T> delimiter) {
         return iterator -> new SplitBefore<>(iterator, delimiter);
     }
+
+    /**
+     * Function to get realization of {@link Groups}.
+     *
+     * @param size Number of elements in every group.
+     * @param <T>  Type of elements.
+     * @return anonymous realization of {@link Groups}.
+     */
+    static <T> Splitter<T> groups(final int size) {
+        return iterator -> new Groups<>(iterator, size);
+    }
 }
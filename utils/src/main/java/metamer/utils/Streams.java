@@ -24,7 +24,15 @@
  */
 package metamer.utils;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
 import java.util.Iterator;
 import java.util.Spliterator;
@@ -39,6 +47,8 @@ import static java.util.Spliterator.SUBSIZED;
  * A namespace for utility functions that work with {@link Stream streams}.
  */
 public class Streams {
+    private static final int BATCH = 1024;
+    private static final int BATCHES_PER_SOURCE = 4;
 
     /**
      * Split stream into chunks.
@@ -66,5 +76,154 @@ public class Streams {
         final Spliterator<List<T>> spliterator = Spliterators.spliterator(iterator, -1, characteristics);
         return StreamSupport.stream(spliterator, false);
     }
-}
 
+    /**
+     * Select the greatest elements of stream.
+     *
+     * Only {@code limit} elements are kept in memory while the {@code source} {@link Stream} is consumed.
+     *
+     * Example:
+     * {@code
+     * final Stream<String> longest = top(Stream.of("a", "abc", "ab"), 2, comparingInt(String::length));
+     * // Stream.of("abc", "ab")
+     * }
+     *
+     * @param source     Stream of elements to select from.
+     * @param limit      Maximum number of selected elements.
+     * @param comparator Order of elements.
+     * @param <T>        Type of elements.
+     * @return Stream of at most {@code limit} greatest elements in descending order.
+     */
+    public static <T> Stream<T> top(final Stream<T> source, final int limit, final Comparator<? super T> comparator) {
+        if (limit < 1) {
+            return Stream.empty();
+        }
+        final PriorityQueue<T> heap = new PriorityQueue<>(limit, comparator);
+        source.forEach(element -> {
+            if (heap.size() < limit) {
+                heap.add(element);
+            } else if (comparator.compare(element, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(element);
+            }
+        });
+        final List<T> selected = new ArrayList<>(heap);
+        selected.sort(comparator.reversed());
+        return selected.stream();
+    }
+
+    /**
+     * Merge streams which are read concurrently.
+     *
+     * Every {@code source} {@link Stream} is consumed by its own thread, elements are handed over in batches
+     * through a bounded queue, so only a few batches per source are kept in memory. Elements of one source
+     * keep their order, elements of different sources are interleaved in arbitrary way.
+     * Sources are closed with the merged stream, an exception thrown while a source is consumed
+     * is rethrown to the consumer of the merged stream.
+     *
+     * Example:
+     * {@code
+     * final Stream<String> reads = merge(List.of(Stream.of("a", "b"), Stream.of("c")));
+     * // Stream.of("a", "c", "b") or any other order which keeps "a" before "b"
+     * }
+     *
+     * @param sources Streams of elements that will be merged.
+     * @param <T>     Type of elements.
+     * @return Stream of elements of all sources.
+     */
+    public static <T> Stream<T> merge(final List<? extends Stream<? extends T>> sources) {
+        final Merged<T> merged = new Merged<>(sources);
+        final Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(merged, Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(merged::close);
+    }
+
+    /**
+     * Consumer of batches read by threads of every source.
+     * <p>
+     * An empty batch marks that one of the sources is over.
+     */
+    private static final class Merged<T> implements Iterator<T> {
+        private final List<? extends Stream<? extends T>> sources;
+        private final BlockingQueue<List<T>> queue;
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        private final List<Thread> threads = new ArrayList<>();
+        private Iterator<T> batch = Collections.emptyIterator();
+        private int remaining;
+
+        private Merged(final List<? extends Stream<? extends T>> sources) {
+            this.sources = sources;
+            this.queue = new ArrayBlockingQueue<>(Math.max(1, sources.size() * BATCHES_PER_SOURCE));
+            this.remaining = sources.size();
+            for (final Stream<? extends T> source : sources) {
+                final Thread thread = new Thread(() -> read(source), "merge");
+                thread.setDaemon(true);
+                threads.add(thread);
+                thread.start();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!batch.hasNext()) {
+                if (remaining == 0) {
+                    return false;
+                }
+                final List<T> next;
+                try {
+                    next = queue.take();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Merge was interrupted", e);
+                }
+                if (next.isEmpty()) {
+                    remaining--;
+                    if (failure.get() != null) {
+                        throw failure.get();
+                    }
+                }
+                batch = next.iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return batch.next();
+        }
+
+        private void read(final Stream<? extends T> source) {
+            try {
+                final Iterator<? extends T> elements = source.iterator();
+                List<T> next = new ArrayList<>(BATCH);
+                while (elements.hasNext()) {
+                    next.add(elements.next());
+                    if (next.size() == BATCH) {
+                        queue.put(next);
+                        next = new ArrayList<>(BATCH);
+                    }
+                }
+                if (!next.isEmpty()) {
+                    queue.put(next);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (final RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                try {
+                    queue.put(Collections.emptyList());
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private void close() {
+            threads.forEach(Thread::interrupt);
+            sources.forEach(Stream::close);
+        }
+    }
+}
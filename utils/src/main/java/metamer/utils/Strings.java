@@ -58,4 +58,52 @@ public class Strings {
                 ? Stream.empty()
                 : rangeClosed(0, str.length() - size).mapToObj(start -> str.substring(start, start + size));
     }
+
+    /**
+     * Realization of "sliding window" strategy over nucleotides without allocations.
+     * <p>
+     * Window is rolled by one symbol per position and packed two bits per nucleotide, A, C, G and T are
+     * 0, 1, 2 and 3, the first nucleotide in the highest bits. Windows with other symbols are skipped.
+     *
+     * @param sequence Initial sequence of symbols.
+     * @param size     Length of window, from 1 to 32.
+     * @param consumer Receiver of every window of nucleotides.
+     */
+    public static void windows(final CharSequence sequence, final int size, final WindowConsumer consumer) {
+        if (size < 1 || size > Long.SIZE / 2) {
+            throw new IllegalArgumentException("Window of " + size + " nucleotides doesn't fit into long");
+        }
+        final long mask = size == Long.SIZE / 2 ? -1L : (1L << (2 * size)) - 1;
+        final int top = 2 * (size - 1);
+        long forward = 0;
+        long reverse = 0;
+        int run = 0;
+        for (int i = 0; i < sequence.length(); i++) {
+            final int code = nucleotide(sequence.charAt(i));
+            if (code < 0) {
+                run = 0;
+                continue;
+            }
+            forward = ((forward << 2) | code) & mask;
+            reverse = (reverse >>> 2) | ((long) (3 - code) << top);
+            if (++run >= size) {
+                consumer.accept(i + 1 - size, forward, reverse);
+            }
+        }
+    }
+
+    private static int nucleotide(final char symbol) {
+        switch (symbol) {
+            case 'A':
+                return 0;
+            case 'C':
+                return 1;
+            case 'G':
+                return 2;
+            case 'T':
+                return 3;
+            default:
+                return -1;
+        }
+    }
 }
@@ -0,0 +1,68 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class GroupsTest {
+    @Test
+    @DisplayName("next() should return NoSuchElementException when there is empty iterator")
+    public void emptyListTest() {
+        final Iterator<Object> iterator = Collections.emptyIterator();
+        final Groups<Object> groups = new Groups<>(iterator, 4);
+        assertThat(groups.hasNext(), is(false));
+        assertThrows(NoSuchElementException.class, groups::next);
+    }
+
+    @Test
+    @DisplayName("elements should be grouped by size regardless of their content")
+    public void groupsOfStringTest() {
+        final Iterator<String> iterator = List.of("@id1", "ACGT", "+", "@@@@", "@id2", "AC", "+", "@!").iterator();
+        final Groups<String> groups = new Groups<>(iterator, 4);
+        assertThat(groups.next(), is(List.of("@id1", "ACGT", "+", "@@@@")));
+        assertThat(groups.next(), is(List.of("@id2", "AC", "+", "@!")));
+        assertThat(groups.hasNext(), is(false));
+    }
+
+    @Test
+    @DisplayName("the last group should hold the rest of elements when they aren't enough for a group")
+    public void incompleteGroupTest() {
+        final Iterator<Character> iterator = List.of('a', 'b', 'c').iterator();
+        final Groups<Character> groups = new Groups<>(iterator, 2);
+        assertThat(groups.next(), is(List.of('a', 'b')));
+        assertThat(groups.next(), is(List.of('c')));
+        assertThat(groups.hasNext(), is(false));
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019-present Denis Verkhoturov, Aleksandra Klimina,
+ * Sophia Shalgueva, Irina Shapovalova, Anna Brusnitsyna
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package metamer.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.util.Comparator.comparingInt;
+import static metamer.utils.Streams.merge;
+import static metamer.utils.Streams.top;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+
+class StreamsTest {
+    @Test
+    @DisplayName("list should contain the longest strings in descending order when select top")
+    public void testTop() {
+        final Stream<String> source = Stream.of("AB", "ABCD", "A", "ABC", "ABCDE");
+        final List<String> list = top(source, 3, comparingInt(String::length)).collect(Collectors.toList());
+        assertThat(list, contains("ABCDE", "ABCD", "ABC"));
+    }
+
+    @Test
+    @DisplayName("merged stream should contain elements of all streams when they are read concurrently")
+    public void testMerge() {
+        final List<Stream<String>> sources = List.of(Stream.of("A", "B"), Stream.empty(), Stream.of("C"));
+        final List<String> list = merge(sources).collect(Collectors.toList());
+        assertThat(list, containsInAnyOrder("A", "B", "C"));
+    }
+}
@@ -27,6 +27,7 @@ package metamer.utils;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -51,4 +52,20 @@ class StringsTest {
         final List<String> list = windows(s, 5).collect(Collectors.toList());
         assertThat(list, empty());
     }
+
+    @Test
+    @DisplayName("nucleotide windows should be packed with their reverse complements and skip other symbols")
+    public void testNucleotideWindows() {
+        final List<Integer> starts = new ArrayList<>();
+        final List<Long> forward = new ArrayList<>();
+        final List<Long> reverse = new ArrayList<>();
+        windows("ACGNTTG", 3, (start, window, complement) -> {
+            starts.add(start);
+            forward.add(window);
+            reverse.add(complement);
+        });
+        assertThat(starts, contains(0, 4));
+        assertThat(forward, contains(0b000110L, 0b111110L));
+        assertThat(reverse, contains(0b011011L, 0b010000L));
+    }
 }